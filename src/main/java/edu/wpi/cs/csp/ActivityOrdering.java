@@ -0,0 +1,62 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This class represents activity-based ordering: the item with the highest ratio of activity to remaining bags is
+ * assigned first. An item's activity goes up each time propagation shrinks its domain and decays over time, so the
+ * search is drawn towards the items that have recently been most affected by its choices. Items with the same ratio
+ * are ordered by remaining bags.
+ * <p>
+ * Decay is applied by raising the amount of each later bump instead of lowering every activity, and every activity is
+ * scaled down together once the bumps get too large, which keeps their order.
+ *
+ * @author Daniel Beckwith
+ */
+public class ActivityOrdering extends VariableOrdering {
+
+    private static final double DECAY = 0.95;
+    private static final double RESCALE_LIMIT = 1e100;
+
+    private double[] activities;
+    private double increment;
+    private boolean propagating;
+
+    @Override
+    protected void setUp() {
+        activities = new double[domains.getItemCount()];
+        increment = 1;
+        propagating = false;
+    }
+
+    @Override
+    public void assigned(Item item, Bag bag) {
+        super.assigned(item, bag);
+        propagating = true;
+    }
+
+    @Override
+    public void propagated(Item item, Bag bag, boolean consistent) {
+        propagating = false;
+        increment /= DECAY;
+        if (increment > RESCALE_LIMIT) {
+            for (int i = 0; i < activities.length; i++) {
+                activities[i] /= RESCALE_LIMIT;
+            }
+            increment /= RESCALE_LIMIT;
+        }
+    }
+
+    @Override
+    protected void domainChanged(int item) {
+        if (propagating) {
+            activities[item] += increment;
+        }
+        super.domainChanged(item);
+    }
+
+    @Override
+    protected int compareKeys(int item1, int item2) {
+        // activity1 / size1 against activity2 / size2 without dividing, highest first
+        int result = Double.compare(activities[item2] * getSize(item1), activities[item1] * getSize(item2));
+        return result != 0 ? result : Integer.compare(getSize(item1), getSize(item2));
+    }
+}
@@ -0,0 +1,212 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * This class represents the propagator that maintains arc consistency over the {@link BinaryConstraint}s using AC-2001
+ * after forward checking. For each arc and each bag in the revised item's domain, the last support found in the other
+ * item's domain is cached and checked first. Since domains grow again on backtracking, the search for a new support
+ * wraps around past the end of the domain, so a stale cache can never cause a supported bag to be removed.
+ *
+ * @author Daniel Beckwith
+ */
+public class ArcConsistencyPropagator extends ForwardCheckingPropagator {
+
+    private BinaryConstraint[] arcConstraints;
+    private int[] arcItems;
+    private int[] arcOthers;
+    private boolean[] arcForward;
+    private int[][] arcsBySupport;
+    private int[][] lastSupports;
+    private int[] queue;
+    private boolean[] queued;
+    private int queueHead;
+    private int queueSize;
+    private final IntConsumer enqueueSupported = this::enqueueSupported;
+
+    @Override
+    public boolean initialize(CSP csp) {
+        List<BinaryConstraint> binaryConstraints = new ArrayList<>();
+        csp.getConstraints().forEach(constraint -> {
+            if (constraint instanceof BinaryConstraint) {
+                binaryConstraints.add((BinaryConstraint) constraint);
+            }
+        });
+
+        // every binary constraint gives one arc in each direction
+        int arcCount = binaryConstraints.size() * 2;
+        arcConstraints = new BinaryConstraint[arcCount];
+        arcItems = new int[arcCount];
+        arcOthers = new int[arcCount];
+        arcForward = new boolean[arcCount];
+        int[] supportCounts = new int[csp.getItems().size()];
+        for (int c = 0; c < binaryConstraints.size(); c++) {
+            BinaryConstraint constraint = binaryConstraints.get(c);
+            int item1 = constraint.getItem1().getIndex();
+            int item2 = constraint.getItem2().getIndex();
+            addArc(2 * c, constraint, item1, item2, true);
+            addArc(2 * c + 1, constraint, item2, item1, false);
+            supportCounts[item1]++;
+            supportCounts[item2]++;
+        }
+
+        // index the arcs by the item whose domain supports them, so they can be revised when that domain shrinks
+        arcsBySupport = new int[supportCounts.length][];
+        for (int i = 0; i < supportCounts.length; i++) {
+            arcsBySupport[i] = new int[supportCounts[i]];
+            supportCounts[i] = 0;
+        }
+        for (int arc = 0; arc < arcCount; arc++) {
+            int other = arcOthers[arc];
+            arcsBySupport[other][supportCounts[other]++] = arc;
+        }
+
+        lastSupports = new int[arcCount][csp.getBags().size()];
+        for (int[] supports : lastSupports) {
+            Arrays.fill(supports, -1);
+        }
+        queue = new int[arcCount];
+        queued = new boolean[arcCount];
+        queueHead = 0;
+        queueSize = 0;
+
+        // make the initial domains arc consistent
+        for (int arc = 0; arc < arcCount; arc++) {
+            enqueue(arc);
+        }
+        return revise(csp);
+    }
+
+    @Override
+    public boolean propagate(Item item, Bag bag, CSP csp) {
+        int i = item.getIndex();
+        // the assigned item's domain becomes just its bag, so that arcs into it are revised against that bag alone
+        if (csp.getDomains().assign(i, bag.getIndex())) {
+            enqueueSupported(i);
+        }
+        if (!forwardCheck(csp, enqueueSupported)) {
+            clearQueue();
+            return false;
+        }
+        return revise(csp);
+    }
+
+    /**
+     * Revises queued arcs until the queue is empty, removing every bag that has no support in the other item's domain.
+     *
+     * @param csp The {@link CSP} being searched.
+     * @return false if some item's domain was wiped out, true otherwise
+     */
+    private boolean revise(CSP csp) {
+        Domains domains = csp.getDomains();
+        int bagCount = domains.getBagCount();
+        while (queueSize > 0) {
+            int arc = queue[queueHead];
+            queued[arc] = false;
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+
+            int item = arcItems[arc];
+            int other = arcOthers[arc];
+            BinaryConstraint constraint = arcConstraints[arc];
+            int[] supports = lastSupports[arc];
+            boolean shrank = false;
+            for (int b = domains.next(item, 0); b >= 0; b = domains.next(item, b + 1)) {
+                int last = supports[b];
+                if (last >= 0 && domains.contains(other, last)) continue;
+
+                // look for a new support after the last one, wrapping around to the start of the domain
+                int support = -1;
+                for (int k = 1; k <= bagCount && support < 0; k++) {
+                    int b2 = (last + k) % bagCount;
+                    if (b2 < 0) b2 += bagCount;
+                    if (domains.contains(other, b2) && isSatisfied(arc, constraint, b, b2)) {
+                        support = b2;
+                    }
+                }
+                if (support >= 0) {
+                    supports[b] = support;
+                }
+                else {
+                    domains.remove(item, b);
+                    shrank = true;
+                }
+            }
+
+            if (shrank) {
+                if (domains.isEmpty(item)) {
+                    clearQueue();
+                    return false;
+                }
+                enqueueSupported(item);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests the constraint of the given arc with the arc's item in the first bag and the other item in the second.
+     *
+     * @param arc        The index of the arc.
+     * @param constraint The {@link BinaryConstraint} of the arc.
+     * @param bag        The index of the bag of the arc's item.
+     * @param otherBag   The index of the bag of the other item.
+     * @return true if satisfied, false otherwise
+     */
+    private boolean isSatisfied(int arc, BinaryConstraint constraint, int bag, int otherBag) {
+        return arcForward[arc] ? constraint.isSatisfied(bag, otherBag) : constraint.isSatisfied(otherBag, bag);
+    }
+
+    /**
+     * Stores a single arc.
+     *
+     * @param arc        The index of the arc.
+     * @param constraint The {@link BinaryConstraint} of the arc.
+     * @param item       The index of the item whose domain the arc revises.
+     * @param other      The index of the item whose domain supports the arc.
+     * @param forward    Whether the revised item is the constraint's first item.
+     */
+    private void addArc(int arc, BinaryConstraint constraint, int item, int other, boolean forward) {
+        arcConstraints[arc] = constraint;
+        arcItems[arc] = item;
+        arcOthers[arc] = other;
+        arcForward[arc] = forward;
+    }
+
+    /**
+     * Queues every arc supported by the given item's domain.
+     *
+     * @param item The index of the item whose domain shrank.
+     */
+    private void enqueueSupported(int item) {
+        for (int arc : arcsBySupport[item]) {
+            enqueue(arc);
+        }
+    }
+
+    /**
+     * Queues the given arc if it is not already queued.
+     *
+     * @param arc The index of the arc.
+     */
+    private void enqueue(int arc) {
+        if (queued[arc]) return;
+        queued[arc] = true;
+        queue[(queueHead + queueSize) % queue.length] = arc;
+        queueSize++;
+    }
+
+    /**
+     * Empties the queue after a domain wipeout.
+     */
+    private void clearQueue() {
+        while (queueSize > 0) {
+            queued[queue[queueHead]] = false;
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represents a partial assignment of the items of a compiled {@link Problem} to its bags, as one array from
+ * each item index to the index of its bag. The number of items and total weight in each bag are kept up to date as
+ * items are assigned and unassigned, so the constraints never have to recount them.
+ *
+ * @author Daniel Beckwith
+ */
+public class Assignment {
+
+    /**
+     * The bag index of an item that has not been assigned.
+     */
+    public static final int UNASSIGNED = -1;
+
+    private final Problem problem;
+    private final int[] bags;
+    private final int[] sizes;
+    private final int[] weights;
+    private int assignedCount;
+
+    /**
+     * Creates an Assignment instance for the specified problem where no item is in a bag.
+     *
+     * @param problem The {@link Problem} the assignment is for.
+     */
+    public Assignment(Problem problem) {
+        this.problem = problem;
+        bags = new int[problem.getItemCount()];
+        sizes = new int[problem.getBagCount()];
+        weights = new int[problem.getBagCount()];
+        Arrays.fill(bags, UNASSIGNED);
+        assignedCount = 0;
+    }
+
+    /**
+     * Creates an Assignment instance with the same items in the same bags as the specified one.
+     *
+     * @param assignment The {@link Assignment} to copy.
+     */
+    public Assignment(Assignment assignment) {
+        problem = assignment.problem;
+        bags = assignment.bags.clone();
+        sizes = assignment.sizes.clone();
+        weights = assignment.weights.clone();
+        assignedCount = assignment.assignedCount;
+    }
+
+    /**
+     * Returns the problem this assignment is for.
+     *
+     * @return a {@link Problem}
+     */
+    public Problem getProblem() {
+        return problem;
+    }
+
+    /**
+     * Adds the given item to the given bag. A bag may be filled past its maximum size, which its
+     * {@link MaxSizeConstraint} then fails on.
+     *
+     * @param item The index of the item, which must not be assigned.
+     * @param bag  The index of the bag.
+     */
+    public void assign(int item, int bag) {
+        if (bags[item] != UNASSIGNED) throw new IllegalStateException("Item already in a bag");
+        bags[item] = bag;
+        sizes[bag] += problem.getCount(item);
+        weights[bag] += problem.getWeight(item);
+        assignedCount++;
+    }
+
+    /**
+     * Removes the given item from its bag.
+     *
+     * @param item The index of the item, which must be assigned.
+     */
+    public void unassign(int item) {
+        int bag = bags[item];
+        if (bag == UNASSIGNED) throw new IllegalStateException("Item not in a bag");
+        bags[item] = UNASSIGNED;
+        sizes[bag] -= problem.getCount(item);
+        weights[bag] -= problem.getWeight(item);
+        assignedCount--;
+    }
+
+    /**
+     * Returns the index of the bag the given item is in, or {@link #UNASSIGNED}.
+     *
+     * @param item The index of the item.
+     * @return an integer
+     */
+    public int getBag(int item) {
+        return bags[item];
+    }
+
+    /**
+     * Returns whether the given item is in a bag.
+     *
+     * @param item The index of the item.
+     * @return true if assigned, false otherwise
+     */
+    public boolean isAssigned(int item) {
+        return bags[item] != UNASSIGNED;
+    }
+
+    /**
+     * Returns the number of items in the given bag, counting an item merged from several items as all of them.
+     *
+     * @param bag The index of the bag.
+     * @return an integer
+     */
+    public int size(int bag) {
+        return sizes[bag];
+    }
+
+    /**
+     * Returns the total weight of the items in the given bag.
+     *
+     * @param bag The index of the bag.
+     * @return an integer
+     */
+    public int getTotalWeight(int bag) {
+        return weights[bag];
+    }
+
+    /**
+     * Returns whether the given item would fit in the room and slots left in the given bag.
+     *
+     * @param item The index of the item.
+     * @param bag  The index of the bag.
+     * @return true if it fits, false otherwise
+     */
+    public boolean hasRoom(int item, int bag) {
+        return weights[bag] + problem.getWeight(item) <= problem.getCapacity(bag) &&
+                sizes[bag] + problem.getCount(item) <= problem.getMaxItems(bag);
+    }
+
+    /**
+     * Returns the items in the given bag, in index order.
+     *
+     * @param bag The index of the bag.
+     * @return a {@link List&lt;{@link Item}&gt;}
+     */
+    public List<Item> getItems(int bag) {
+        List<Item> items = new ArrayList<>(sizes[bag]);
+        for (int i = 0; i < bags.length; i++) {
+            if (bags[i] == bag) {
+                items.add(problem.getItem(i));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Returns the number of items that are in a bag.
+     *
+     * @return an integer
+     */
+    public int getAssignedCount() {
+        return assignedCount;
+    }
+
+    /**
+     * Returns whether every item is in a bag.
+     *
+     * @return true if complete, false otherwise
+     */
+    public boolean isComplete() {
+        return assignedCount == bags.length;
+    }
+}
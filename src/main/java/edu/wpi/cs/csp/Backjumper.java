@@ -0,0 +1,250 @@
+package edu.wpi.cs.csp;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This class represents the bookkeeping for conflict-directed backjumping. It tracks the search level of each assigned
+ * item and explains every failure as a conflict set, the set of levels whose assignments caused it. A level that is
+ * not in the conflict set of a failure below it can be jumped over, and the assignments in the conflict set of an
+ * exhausted item are learned as a nogood.
+ * <p>
+ * A bag missing from an item's domain is explained by a binary constraint with an earlier item or by the items already
+ * in the bag. Pruning that has no such direct reason, like the global capacity reasoning, is explained by every level,
+ * which is always sound. When backjumping is off, every failure is explained that way, so the search is chronological.
+ *
+ * @author Daniel Beckwith
+ */
+public class Backjumper {
+
+    private final CSP csp;
+    private final boolean enabled;
+    private final NogoodStore nogoods;
+    private final int[] levels;
+    private final Item[] items;
+    private final Bag[] bags;
+    private final long[][] rootDomains;
+    private final BitSet nogoodLevels;
+    private int depth;
+
+    /**
+     * Creates a Backjumper instance for the specified compiled CSP, whose domains have already been initialized. The
+     * domains at this point are taken as the root domains, whose missing bags never need explaining.
+     *
+     * @param csp     The {@link CSP} being searched.
+     * @param enabled Whether to explain failures precisely, or by every level.
+     * @param nogoods The {@link NogoodStore} to learn into and check against.
+     */
+    public Backjumper(CSP csp, boolean enabled, NogoodStore nogoods) {
+        this.csp = csp;
+        this.enabled = enabled;
+        this.nogoods = nogoods;
+        int itemCount = csp.getItems().size();
+        levels = new int[itemCount];
+        items = new Item[itemCount];
+        bags = new Bag[itemCount];
+        rootDomains = new long[itemCount][];
+        Domains domains = csp.getDomains();
+        for (int i = 0; i < itemCount; i++) {
+            levels[i] = -1;
+            rootDomains[i] = new long[domains.getWords()];
+            domains.copy(i, rootDomains[i]);
+        }
+        nogoodLevels = new BitSet();
+        depth = 0;
+    }
+
+    /**
+     * Records that the given item was added to the given bag at the next level.
+     *
+     * @param item The {@link Item} that was assigned.
+     * @param bag  The {@link Bag} it was added to.
+     */
+    public void assign(Item item, Bag bag) {
+        levels[item.getIndex()] = depth;
+        items[depth] = item;
+        bags[depth] = bag;
+        depth++;
+    }
+
+    /**
+     * Records that the item assigned at the last level was removed from its bag.
+     */
+    public void unassign() {
+        depth--;
+        levels[items[depth].getIndex()] = -1;
+        items[depth] = null;
+        bags[depth] = null;
+    }
+
+    /**
+     * Fills the given conflict set with every assigned level. The conflict sets are filled in rather than created so
+     * that the search can reuse one for each level.
+     *
+     * @param conflicts The conflict set to fill.
+     * @return the conflict set
+     */
+    public BitSet all(BitSet conflicts) {
+        conflicts.clear();
+        conflicts.set(0, depth);
+        return conflicts;
+    }
+
+    /**
+     * Fills the given conflict set with the levels explaining why the bags missing from the given item's domain were
+     * removed.
+     *
+     * @param item      The {@link Item} whose domain to explain.
+     * @param conflicts The conflict set to fill.
+     * @return the conflict set
+     */
+    public BitSet explainDomain(Item item, BitSet conflicts) {
+        if (!enabled) return all(conflicts);
+
+        conflicts.clear();
+        int i = item.getIndex();
+        long[] root = rootDomains[i];
+        Domains domains = csp.getDomains();
+        for (int b = nextRoot(root, 0); b >= 0; b = nextRoot(root, b + 1)) {
+            if (domains.contains(i, b)) continue;
+            if (!explainRemoval(item, csp.getBag(b), conflicts)) return all(conflicts);
+        }
+        return conflicts;
+    }
+
+    /**
+     * Fills the given conflict set with the levels explaining why propagation failed after the last assignment.
+     *
+     * @param conflicts The conflict set to fill.
+     * @return the conflict set
+     */
+    public BitSet explainWipeout(BitSet conflicts) {
+        if (!enabled) return all(conflicts);
+
+        // explain the first item left with nothing in its domain, if the failure was a wipeout at all
+        Domains domains = csp.getDomains();
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] < 0 && domains.isEmpty(i)) {
+                return explainDomain(csp.getItem(i), conflicts);
+            }
+        }
+        return all(conflicts);
+    }
+
+    /**
+     * Returns whether adding the given item to the given bag would complete a learned nogood, adding the levels of
+     * the rest of that nogood to the given conflict set if so.
+     *
+     * @param item      The {@link Item} about to be assigned.
+     * @param bag       The {@link Bag} it is about to be added to.
+     * @param conflicts The conflict set of the item being assigned.
+     * @return true if the assignment is ruled out by a nogood, false otherwise
+     */
+    public boolean isNogood(Item item, Bag bag, BitSet conflicts) {
+        if (!enabled) return false;
+
+        int bagCount = csp.getBags().size();
+        int assignment = item.getIndex() * bagCount + bag.getIndex();
+        List<int[]> matches = nogoods.get(assignment);
+        for (int k = 0; k < matches.size(); k++) {
+            int[] nogood = matches.get(k);
+            nogoodLevels.clear();
+            boolean holds = true;
+            for (int other : nogood) {
+                if (other == assignment) continue;
+                int level = levels[other / bagCount];
+                if (level < 0 || bags[level].getIndex() != other % bagCount) {
+                    holds = false;
+                    break;
+                }
+                nogoodLevels.set(level);
+            }
+            if (holds) {
+                nogoods.touch(nogood);
+                conflicts.or(nogoodLevels);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Learns the assignments at the levels of the given conflict set as a nogood.
+     *
+     * @param conflicts The conflict set of an item whose every bag failed.
+     */
+    public void learn(BitSet conflicts) {
+        if (!enabled) return;
+
+        int bagCount = csp.getBags().size();
+        int[] nogood = new int[conflicts.cardinality()];
+        int n = 0;
+        for (int level = conflicts.nextSetBit(0); level >= 0; level = conflicts.nextSetBit(level + 1)) {
+            nogood[n++] = items[level].getIndex() * bagCount + bags[level].getIndex();
+        }
+        nogoods.add(nogood);
+    }
+
+    /**
+     * Adds the levels that directly rule out the given item being in the given bag to the conflict set.
+     *
+     * @param item      The {@link Item} to explain.
+     * @param bag       The {@link Bag} missing from its domain.
+     * @param conflicts The conflict set to add to.
+     * @return true if the removal could be explained directly, false otherwise
+     */
+    private boolean explainRemoval(Item item, Bag bag, BitSet conflicts) {
+        // a single earlier item that the item conflicts with in this bag is the best explanation
+        int culprit = -1;
+        List<Constraint> constraints = csp.getConstraints(item);
+        for (int k = 0; k < constraints.size(); k++) {
+            Constraint constraint = constraints.get(k);
+            if (!(constraint instanceof BinaryConstraint)) continue;
+            BinaryConstraint binary = (BinaryConstraint) constraint;
+            boolean first = binary.getItem1().equals(item);
+            Item other = first ? binary.getItem2() : binary.getItem1();
+            int level = levels[other.getIndex()];
+            if (level < 0 || (culprit >= 0 && level >= culprit)) continue;
+            int otherBag = csp.getAssignment().getBag(other.getIndex());
+            boolean satisfied = first ?
+                    binary.isSatisfied(bag.getIndex(), otherBag) :
+                    binary.isSatisfied(otherBag, bag.getIndex());
+            if (!satisfied) culprit = level;
+        }
+        if (culprit >= 0) {
+            conflicts.set(culprit);
+            return true;
+        }
+
+        // otherwise the items filling up the bag are to blame
+        Assignment assignment = csp.getAssignment();
+        int b = bag.getIndex();
+        if (!assignment.hasRoom(item.getIndex(), b)) {
+            for (int i = 0; i < levels.length; i++) {
+                if (assignment.getBag(i) == b) {
+                    conflicts.set(levels[i]);
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index of the next bag in the given root domain, or -1 if there is none.
+     *
+     * @param root The root domain bitset.
+     * @param from The bag index to start searching from.
+     * @return an integer
+     */
+    private int nextRoot(long[] root, int from) {
+        int w = from >>> 6;
+        if (w >= root.length) return -1;
+        long word = root[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == root.length) return -1;
+            word = root[w];
+        }
+    }
+}
@@ -1,20 +1,16 @@
 package edu.wpi.cs.csp;
 
-import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
 /**
- * This class represents a bag that can hold items.
+ * This class represents a bag that can hold items. Which items are in the bag is kept by an {@link Assignment}.
  *
  * @author Aditya Nivarthi
  */
 public class Bag {
 
     private final String name;
+    private final int maxItems;
     private final int capacity;
-    private final Item[] items;
-    private Item overflowItem;
+    private int index;
 
     /**
      * Creates a new Bag instance with the specified name, max size and total weight capacity.
@@ -25,91 +21,9 @@ public class Bag {
      */
     public Bag(String name, int maxItems, int capacity) {
         this.name = name;
+        this.maxItems = maxItems;
         this.capacity = capacity;
-        items = new Item[maxItems];
-        overflowItem = null;
-    }
-
-    /**
-     * Creates a new Bag instance with the specified name, item list and total weight capacity.
-     *
-     * @param name     The name of this bag.
-     * @param items    The list of items in this bag.
-     * @param capacity The total weight capacity this bag can hold.
-     */
-    private Bag(String name, Item[] items, int capacity) {
-        this.name = name;
-        this.items = items;
-        this.capacity = capacity;
-        overflowItem = null;
-    }
-
-    /**
-     * Adds the specified item to the bag. If the item cannot be added because the bag is full, the overflow flag is set to true and the item is not added.
-     *
-     * @param item The {@link Item} to add to the bag.
-     * @return true if added, false otherwise
-     */
-    public boolean add(Item item) {
-        if (overflowItem != null) throw new IllegalStateException("Bag is already overfull");
-        if (item.hasAssignment()) throw new IllegalStateException("Item already in a bag");
-
-        // find empty spot in bag and put item there
-        for (int i = 0; i < items.length; i++) {
-            if (items[i] == null) {
-                items[i] = item;
-                item.setBag(this);
-                overflowItem = null;
-                return true;
-            }
-        }
-
-        // if no empty spots, the bag is now overfull with the given item
-        overflowItem = item;
-        return false;
-    }
-
-    /**
-     * Removes the specified item from the bag.
-     *
-     * @param item The {@link Item} to remove from the bag.
-     * @return true if removed, false otherwise
-     */
-    public boolean remove(Item item) {
-        // if the item to be removed is the overflow item, this bag is no longer overfull
-        if (overflowItem != null && item.equals(overflowItem)) {
-            overflowItem = null;
-            return true;
-        }
-
-        // find the given item and set its spot to empty
-        for (int i = 0; i < items.length; i++) {
-            if (Objects.equals(items[i], item)) {
-                items[i] = null;
-                item.setBag(null);
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Returns whether the bag contains the specified item.
-     *
-     * @param item The {@link Item} to search for in this bag.
-     * @return true if the item is contained, false otherwise
-     */
-    public boolean contains(Item item) {
-        return Objects.equals(item.getBag(), this);
-    }
-
-    /**
-     * Returns a stream of the items in this bag, excluding the null item slots.
-     *
-     * @return a {@link Stream&lt;{@link Item}&gt;}
-     */
-    public Stream<Item> stream() {
-        return Stream.of(items).filter(Objects::nonNull);
+        index = -1;
     }
 
     /**
@@ -122,40 +36,30 @@ public class Bag {
     }
 
     /**
-     * Returns the number of items contained in the bag.
+     * Returns the dense index of this bag within its compiled {@link CSP}, or -1 if it has not been compiled.
      *
      * @return an integer
      */
-    public int size() {
-        // count non-null items
-        return (int) Stream.of(items).filter(Objects::nonNull).count();
+    public int getIndex() {
+        return index;
     }
 
     /**
-     * Returns the maximum size of this bag.
+     * Sets the dense index of this bag within its compiled {@link CSP}.
      *
-     * @return an integer.
+     * @param index The index of this bag.
      */
-    public int getMaxItems() {
-        return items.length;
+    public void setIndex(int index) {
+        this.index = index;
     }
 
     /**
-     * Returns whether the bag is over filled with items.
-     *
-     * @return true if over filled, false otherwise
-     */
-    public boolean isOverMaxItems() {
-        return overflowItem != null;
-    }
-
-    /**
-     * Returns whether the bag is filled completely.
+     * Returns the maximum size of this bag.
      *
-     * @return true if full, false otherwise
+     * @return an integer.
      */
-    public boolean isAtMaxItems() {
-        return size() == getMaxItems();
+    public int getMaxItems() {
+        return maxItems;
     }
 
     /**
@@ -167,34 +71,6 @@ public class Bag {
         return capacity;
     }
 
-    /**
-     * Returns the total weight of all the items in the bag.
-     *
-     * @return an integer
-     */
-    public int getTotalWeight() {
-        // sum weights of non-null items
-        return Stream.of(items).filter(Objects::nonNull).mapToInt(Item::getWeight).sum();
-    }
-
-    /**
-     * Returns whether the total weight of the items in the bag is equal to the bag's total weight capacity.
-     *
-     * @return true if equal, false otherwise
-     */
-    public boolean isAtCapacity() {
-        return getTotalWeight() == getCapacity();
-    }
-
-    /**
-     * Returns whether the total weight of the items in the bag is larger than the bag's total weight capacity.
-     *
-     * @return true if the total weight is over the capacity, false otherwise
-     */
-    public boolean isOverCapacity() {
-        return getTotalWeight() > getCapacity();
-    }
-
     /**
      * Creates and returns a clone of this object.
      *
@@ -202,7 +78,9 @@ public class Bag {
      */
     @Override
     public Bag clone() {
-        return new Bag(name, items.clone(), capacity);
+        Bag clone = new Bag(name, maxItems, capacity);
+        clone.index = index;
+        return clone;
     }
 
     /**
@@ -241,11 +119,8 @@ public class Bag {
     public String toString() {
         return "Bag{" +
                 "name='" + name + '\'' +
-                ", totalWeight=" + getTotalWeight() +
                 ", capacity=" + capacity +
-                ", size=" + size() +
-                ", maxSize=" + items.length +
-                ", items=" + Stream.of(items).filter(Objects::nonNull).map(Item::getName).collect(Collectors.joining(", ", "[", "]")) +
+                ", maxSize=" + maxItems +
                 '}';
     }
 }
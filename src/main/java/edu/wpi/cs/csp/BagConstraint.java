@@ -0,0 +1,26 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This interface defines the common functionality between the constraints that limit the contents of exactly one bag
+ * and nothing else, so that bags limited in the same way can be recognized as interchangeable.
+ *
+ * @author Daniel Beckwith
+ */
+public interface BagConstraint extends Constraint {
+
+    /**
+     * Returns the bag in this constraint.
+     *
+     * @return a {@link Bag}
+     */
+    Bag getBag();
+
+    /**
+     * Returns whether the given constraint limits its bag in the same way as this constraint limits its own, so that
+     * the two bags can be swapped without changing which assignments satisfy the constraints.
+     *
+     * @param other The {@link BagConstraint} to compare to.
+     * @return true if equivalent, false otherwise
+     */
+    boolean isEquivalent(BagConstraint other);
+}
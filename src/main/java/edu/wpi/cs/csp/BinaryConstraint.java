@@ -0,0 +1,56 @@
+package edu.wpi.cs.csp;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This interface defines the common functionality between the constraints that relate the bags of exactly two items
+ * and nothing else, so that they can be checked against hypothetical assignments without adding items to bags.
+ *
+ * @author Daniel Beckwith
+ */
+public interface BinaryConstraint extends Constraint {
+
+    /**
+     * Returns the first item.
+     *
+     * @return an {@link Item}
+     */
+    Item getItem1();
+
+    /**
+     * Returns the second item.
+     *
+     * @return an {@link Item}
+     */
+    Item getItem2();
+
+    /**
+     * Tests whether this constraint would be satisfied if the first item was in the first bag and the second item was
+     * in the second bag.
+     *
+     * @param bag1 The index of the bag of the first item.
+     * @param bag2 The index of the bag of the second item.
+     * @return true if satisfied, false otherwise
+     */
+    boolean isSatisfied(int bag1, int bag2);
+
+    /**
+     * Returns the bags that this constraint treats differently from the others. Swapping any two other bags never
+     * changes whether this constraint is satisfied.
+     *
+     * @return a {@link List&lt;{@link Bag}&gt;}
+     */
+    default List<Bag> getDistinguishedBags() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    default Result test(Assignment assignment) {
+        // if either of this constraint's items haven't been assigned, ignore this constraint
+        int bag1 = assignment.getBag(getItem1().getIndex());
+        int bag2 = assignment.getBag(getItem2().getIndex());
+        if (bag1 == Assignment.UNASSIGNED || bag2 == Assignment.UNASSIGNED) return Result.IGNORED;
+        return isSatisfied(bag1, bag2) ? Result.PASSED : Result.FAILED;
+    }
+}
@@ -1,14 +1,19 @@
 package edu.wpi.cs.csp;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
- * This class represents the constraint satisfaction problem that is trying to be solved using backtracking.
+ * This class represents the constraint satisfaction problem that is trying to be solved using backtracking. Its items,
+ * bags and constraints are compiled into an immutable {@link Problem}, and the search state over that problem is kept
+ * in an {@link Assignment} and the {@link Domains} of the items.
  *
  * @author Daniel Beckwith
  */
@@ -17,8 +22,13 @@ public class CSP {
     private final Set<Item> items;
     private final Set<Bag> bags;
     private final Set<Constraint> constraints;
-    private final Map<Item, Set<Bag>> domains;
-    private final Deque< Map<Item, Set<Bag>>> savedDomains;
+    private final Map<Item, List<Item>> members;
+    private int[] savedDomains;
+    private int savedCount;
+    private Problem problem;
+    private Assignment assignment;
+    private Domains domains;
+    private List<Item> infeasibleItems;
 
     /**
      * Creates a CSP instance.
@@ -27,8 +37,13 @@ public class CSP {
         items = new HashSet<>();
         bags = new HashSet<>();
         constraints = new HashSet<>();
-        domains = new HashMap<>();
-        savedDomains = new ArrayDeque<>();
+        members = new HashMap<>();
+        savedDomains = new int[16];
+        savedCount = 0;
+        problem = new Problem(items, bags, constraints);
+        assignment = new Assignment(problem);
+        domains = new Domains(0, 0);
+        infeasibleItems = new ArrayList<>();
     }
 
     /**
@@ -78,32 +93,451 @@ public class CSP {
         return constraints;
     }
 
-    public Map<Item, Set<Bag>> getDomains() {
+    /**
+     * Returns a copy of this CSP with its own items, bags and constraints, none of which share any state with this
+     * CSP. No item of the copy is in a bag until it is compiled and searched.
+     *
+     * @return a {@link CSP}
+     */
+    public CSP copy() {
+        CSP copy = new CSP();
+        Map<Item, Item> itemCopies = new HashMap<>();
+        Map<Bag, Bag> bagCopies = new HashMap<>();
+        items.forEach(item -> itemCopies.put(item, new Item(item.getName(), item.getWeight(), item.getCount())));
+        bags.forEach(bag -> bagCopies.put(bag, new Bag(bag.getName(), bag.getMaxItems(), bag.getCapacity())));
+        copy.items.addAll(itemCopies.values());
+        copy.bags.addAll(bagCopies.values());
+        constraints.forEach(constraint -> copy.constraints.add(constraint.copy(itemCopies, bagCopies)));
+        members.forEach((item, itemMembers) -> copy.members.put(itemCopies.get(item), itemMembers));
+        return copy;
+    }
+
+    /**
+     * Returns a copy of this CSP in which every set of items that {@link EqualityConstraint}s chain into the same bag is
+     * merged into a single item, with their total weight and count, named after the first of them by name. The other
+     * constraints on the merged items are moved onto the item they were merged into, and the equality constraints
+     * themselves are dropped, so the search has one item to branch on for each set. A {@link Solution} to the copy puts
+     * each of the merged items in the bag of the item they were merged into.
+     *
+     * @return a {@link CSP}
+     */
+    public CSP mergeEqualItems() {
+        // union-find over the items in name order, where each set is represented by its first item
+        List<Item> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparing(Item::getName));
+        Map<Item, Integer> positions = new HashMap<>();
+        int[] parents = new int[sorted.size()];
+        for (int k = 0; k < sorted.size(); k++) {
+            positions.put(sorted.get(k), k);
+            parents[k] = k;
+        }
+        for (Constraint constraint : constraints) {
+            if (constraint instanceof EqualityConstraint) {
+                EqualityConstraint equality = (EqualityConstraint) constraint;
+                link(parents, positions.get(equality.getItem1()), positions.get(equality.getItem2()));
+            }
+        }
+
+        // total the weight and count of each set and list the original items it stands for
+        int[] weights = new int[sorted.size()];
+        int[] counts = new int[sorted.size()];
+        List<List<Item>> setMembers = new ArrayList<>(sorted.size());
+        for (int k = 0; k < sorted.size(); k++) {
+            setMembers.add(new ArrayList<>());
+        }
+        for (int k = 0; k < sorted.size(); k++) {
+            Item item = sorted.get(k);
+            int root = find(parents, k);
+            weights[root] += item.getWeight();
+            counts[root] += item.getCount();
+            for (Item member : getMembers(item)) {
+                setMembers.get(root).add(new Item(member.getName(), member.getWeight(), member.getCount()));
+            }
+        }
+
+        // every representative comes before the rest of its set, so its merged item is made first
+        CSP merged = new CSP();
+        Item[] mergedItems = new Item[sorted.size()];
+        Map<Item, Item> targets = new HashMap<>();
+        for (int k = 0; k < sorted.size(); k++) {
+            int root = find(parents, k);
+            if (root == k) {
+                mergedItems[k] = new Item(sorted.get(k).getName(), weights[k], counts[k]);
+                merged.items.add(mergedItems[k]);
+                if (setMembers.get(k).size() > 1 || members.containsKey(sorted.get(k))) {
+                    merged.members.put(mergedItems[k], Collections.unmodifiableList(setMembers.get(k)));
+                }
+            }
+            targets.put(sorted.get(k), mergedItems[root]);
+        }
+        Map<Bag, Bag> bagCopies = new HashMap<>();
+        bags.forEach(bag -> bagCopies.put(bag, new Bag(bag.getName(), bag.getMaxItems(), bag.getCapacity())));
+        merged.bags.addAll(bagCopies.values());
+        for (Constraint constraint : constraints) {
+            // both items of an equality constraint are in the same set, which always satisfies it
+            if (!(constraint instanceof EqualityConstraint)) {
+                merged.constraints.add(constraint.copy(targets, bagCopies));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the items of the CSP this one was merged from that the given item stands for, which is just the item
+     * itself unless it was merged by {@link #mergeEqualItems()}.
+     *
+     * @param item The {@link Item} of this CSP.
+     * @return a {@link List&lt;{@link Item}&gt;}
+     */
+    public List<Item> getMembers(Item item) {
+        List<Item> itemMembers = members.get(item);
+        return itemMembers != null ? itemMembers : Collections.singletonList(item);
+    }
+
+    /**
+     * Returns copies of the independent parts of this compiled CSP, whose domains have already been made node
+     * consistent. Two items are in the same part if a constraint involves both of them, or if there is a bag that both
+     * can go in, since the bag constraints read its contents as a whole. Every bag is in the part of the items that can
+     * go in it, or in a part of its own if none can. A solution to each part therefore leaves every constraint of the
+     * other parts untouched, and together the solutions of all the parts solve this CSP.
+     * <p>
+     * The unary constraints of each item are folded into a single {@link InclusionConstraint} of the bags left in its
+     * domain, which are all in its part, and the two bags distinguished by a binary constraint are put in the part of
+     * its items. Any other constraint is assumed to read only the items and bags of its scope, and a constraint with
+     * neither ties everything together, so this CSP is then returned whole as a single part.
+     *
+     * @return a {@link List&lt;{@link CSP}&gt;}
+     */
+    public List<CSP> splitIndependentParts() {
+        // union-find over the items followed by the bags, where each set is represented by its lowest position
+        int itemCount = problem.getItemCount();
+        int bagCount = problem.getBagCount();
+        int[] parents = new int[itemCount + bagCount];
+        for (int k = 0; k < parents.length; k++) {
+            parents[k] = k;
+        }
+        for (Constraint constraint : constraints) {
+            if (constraint instanceof UnaryConstraint) continue;
+            List<Item> scopeItems = constraint.getScopeItems();
+            List<Bag> scopeBags = constraint.getScopeBags();
+            if (scopeItems.isEmpty() && scopeBags.isEmpty()) return Collections.singletonList(copy());
+            int first = scopeItems.isEmpty() ? itemCount + scopeBags.get(0).getIndex() : scopeItems.get(0).getIndex();
+            scopeItems.forEach(item -> link(parents, first, item.getIndex()));
+            scopeBags.forEach(bag -> link(parents, first, itemCount + bag.getIndex()));
+            if (constraint instanceof BinaryConstraint) {
+                ((BinaryConstraint) constraint).getDistinguishedBags()
+                        .forEach(bag -> link(parents, first, itemCount + bag.getIndex()));
+            }
+        }
+        for (int i = 0; i < itemCount; i++) {
+            for (int b = domains.next(i, 0); b >= 0; b = domains.next(i, b + 1)) {
+                link(parents, i, itemCount + b);
+            }
+        }
+
+        // copy the items and bags into the part of their set, in the order the sets first appear
+        List<CSP> parts = new ArrayList<>();
+        int[] partOf = new int[parents.length];
+        Arrays.fill(partOf, -1);
+        Map<Item, Item> itemCopies = new HashMap<>();
+        Map<Bag, Bag> bagCopies = new HashMap<>();
+        for (int k = 0; k < parents.length; k++) {
+            int root = find(parents, k);
+            if (partOf[root] < 0) {
+                partOf[root] = parts.size();
+                parts.add(new CSP());
+            }
+            CSP part = parts.get(partOf[root]);
+            if (k < itemCount) {
+                Item item = problem.getItem(k);
+                Item copy = new Item(item.getName(), item.getWeight(), item.getCount());
+                itemCopies.put(item, copy);
+                part.items.add(copy);
+                if (members.containsKey(item)) {
+                    part.members.put(copy, members.get(item));
+                }
+            }
+            else {
+                Bag bag = problem.getBag(k - itemCount);
+                Bag copy = new Bag(bag.getName(), bag.getMaxItems(), bag.getCapacity());
+                bagCopies.put(bag, copy);
+                part.bags.add(copy);
+            }
+        }
+        for (int i = 0; i < itemCount; i++) {
+            List<Bag> allowed = new ArrayList<>();
+            for (int b = domains.next(i, 0); b >= 0; b = domains.next(i, b + 1)) {
+                allowed.add(bagCopies.get(problem.getBag(b)));
+            }
+            Item copy = itemCopies.get(problem.getItem(i));
+            parts.get(partOf[find(parents, i)]).constraints.add(
+                    new InclusionConstraint(copy, allowed.toArray(new Bag[allowed.size()])));
+        }
+        for (Constraint constraint : constraints) {
+            if (constraint instanceof UnaryConstraint) continue;
+            List<Item> scopeItems = constraint.getScopeItems();
+            int first = scopeItems.isEmpty() ?
+                    itemCount + constraint.getScopeBags().get(0).getIndex() :
+                    scopeItems.get(0).getIndex();
+            parts.get(partOf[find(parents, first)]).constraints.add(constraint.copy(itemCopies, bagCopies));
+        }
+        return parts;
+    }
+
+    /**
+     * Joins the sets of the two given positions in a union-find forest, keeping the lower representative.
+     *
+     * @param parents The parent of each position, which is the position itself at a representative.
+     * @param k1      The first position.
+     * @param k2      The second position.
+     */
+    private static void link(int[] parents, int k1, int k2) {
+        int root1 = find(parents, k1);
+        int root2 = find(parents, k2);
+        parents[Math.max(root1, root2)] = Math.min(root1, root2);
+    }
+
+    /**
+     * Returns the representative of the set of the given position in a union-find forest, halving the path to it.
+     *
+     * @param parents The parent of each position, which is the position itself at a representative.
+     * @param k       The position to find the representative of.
+     * @return an integer
+     */
+    private static int find(int[] parents, int k) {
+        while (parents[k] != k) {
+            parents[k] = parents[parents[k]];
+            k = parents[k];
+        }
+        return k;
+    }
+
+    /**
+     * Compiles this CSP and adds each of its items to the bag named like the bag that the item of the same name is in
+     * within the given copy, such as a copy solved on another thread.
+     *
+     * @param solved The copy of this CSP to take the assignment from.
+     */
+    public void copyAssignment(CSP solved) {
+        new Solution(this, solved).apply();
+    }
+
+    /**
+     * Compiles this CSP and adds each of its items to the bag named like the bag that the item of the same name is in
+     * within whichever of the given solved parts it is in, such as the parts made by {@link #splitIndependentParts()}.
+     *
+     * @param parts The solved parts of this CSP to take the assignment from.
+     */
+    public void copyAssignment(List<CSP> parts) {
+        compile();
+        parts.forEach(part -> new Solution(this, part).applyTo(assignment));
+    }
+
+    /**
+     * Compiles this CSP for solving into a {@link Problem}, which gives every {@link Item} and {@link Bag} a dense
+     * index and indexes the constraints by the items and bags they involve, then takes every item out of its bag and
+     * resets the domain of every item to contain all bags. Must be called again whenever items, bags or constraints
+     * are added.
+     */
+    public void compile() {
+        problem = new Problem(items, bags, constraints);
+        assignment = new Assignment(problem);
+        domains = new Domains(problem.getItemCount(), problem.getBagCount());
+        savedCount = 0;
+        infeasibleItems = new ArrayList<>();
+    }
+
+    /**
+     * Shrinks the initial domains by applying every {@link UnaryConstraint} to its item's domain and removing every bag
+     * whose capacity is smaller than an item's weight. Should be called right after {@link #compile()}, before any
+     * choice point is saved.
+     *
+     * @return the items left with an empty domain, which make this CSP infeasible
+     */
+    public List<Item> enforceNodeConsistency() {
+        long[] mask = domains.fullMask();
+        int bagCount = problem.getBagCount();
+        for (int i = 0; i < problem.getItemCount(); i++) {
+            Item item = problem.getItem(i);
+            Arrays.fill(mask, 0);
+            for (int b = 0; b < bagCount; b++) {
+                if (problem.getWeight(i) <= problem.getCapacity(b) && problem.getCount(i) <= problem.getMaxItems(b)) {
+                    mask[b >>> 6] |= 1L << b;
+                }
+            }
+            for (Constraint constraint : getConstraints(item)) {
+                if (constraint instanceof UnaryConstraint) {
+                    UnaryConstraint unary = (UnaryConstraint) constraint;
+                    for (int b = 0; b < bagCount; b++) {
+                        if (!unary.isSatisfied(b)) {
+                            mask[b >>> 6] &= ~(1L << b);
+                        }
+                    }
+                }
+            }
+            domains.retain(i, mask);
+            if (domains.isEmpty(i)) {
+                infeasibleItems.add(item);
+            }
+        }
+        return infeasibleItems;
+    }
+
+    /**
+     * Returns the items that were left with an empty domain by the last call to {@link #enforceNodeConsistency()}.
+     *
+     * @return a {@link List&lt;{@link Item}&gt;}
+     */
+    public List<Item> getInfeasibleItems() {
+        return infeasibleItems;
+    }
+
+    /**
+     * Returns the constraints that involve the given item, as indexed by the last call to {@link #compile()}.
+     *
+     * @param item The {@link Item} to get the constraints of.
+     * @return a {@link List&lt;{@link Constraint}&gt;}
+     */
+    public List<Constraint> getConstraints(Item item) {
+        return problem.getConstraints(item);
+    }
+
+    /**
+     * Returns the constraints that depend on the contents of the given bag, as indexed by the last call to
+     * {@link #compile()}.
+     *
+     * @param bag The {@link Bag} to get the constraints of.
+     * @return a {@link List&lt;{@link Constraint}&gt;}
+     */
+    public List<Constraint> getConstraints(Bag bag) {
+        return problem.getConstraints(bag);
+    }
+
+    /**
+     * Returns the constraints that are ignored until every item has been assigned, as indexed by the last call to
+     * {@link #compile()}.
+     *
+     * @return a {@link List&lt;{@link Constraint}&gt;}
+     */
+    public List<Constraint> getCompletionConstraints() {
+        return problem.getCompletionConstraints();
+    }
+
+    /**
+     * Returns the items that share at least one constraint with the given item, as indexed by the last call to
+     * {@link #compile()}.
+     *
+     * @param item The {@link Item} to get the neighbors of.
+     * @return a {@link List&lt;{@link Item}&gt;}
+     */
+    public List<Item> getNeighbors(Item item) {
+        return problem.getNeighbors(item);
+    }
+
+    /**
+     * Returns the item with the specified dense index.
+     *
+     * @param index The index of the {@link Item} given by {@link #compile()}.
+     * @return an {@link Item}
+     */
+    public Item getItem(int index) {
+        return problem.getItem(index);
+    }
+
+    /**
+     * Returns the bag with the specified dense index.
+     *
+     * @param index The index of the {@link Bag} given by {@link #compile()}.
+     * @return a {@link Bag}
+     */
+    public Bag getBag(int index) {
+        return problem.getBag(index);
+    }
+
+    /**
+     * Returns the immutable problem built by the last call to {@link #compile()}.
+     *
+     * @return a {@link Problem}
+     */
+    public Problem getProblem() {
+        return problem;
+    }
+
+    /**
+     * Returns the assignment of the items to the bags, as reset by the last call to {@link #compile()}.
+     *
+     * @return an {@link Assignment}
+     */
+    public Assignment getAssignment() {
+        return assignment;
+    }
+
+    /**
+     * Returns the bitset domains of the items, as set up by the last call to {@link #compile()}.
+     *
+     * @return a {@link Domains}
+     */
+    public Domains getDomains() {
         return domains;
     }
 
+    /**
+     * Marks a choice point. All domain changes made after this call are undone by the matching call to
+     * {@link #restoreDomains()}.
+     */
     public void saveDomains() {
-        // deep copy the map of domains
-        Map<Item, Set<Bag>> domainCopy = new HashMap<>();
-        domains.forEach((item, domain) -> domainCopy.put(item, new HashSet<>(domain)));
-        // push to stack of saved domains
-        savedDomains.push(domainCopy);
+        // only the trail height is saved, the domains themselves are never copied
+        if (savedCount == savedDomains.length) {
+            savedDomains = Arrays.copyOf(savedDomains, savedCount * 2);
+        }
+        savedDomains[savedCount++] = domains.mark();
     }
 
+    /**
+     * Undoes every domain change made since the most recent choice point and discards that choice point.
+     */
     public void restoreDomains() {
-        domains.clear();
-        // set domains from top of stack
-        savedDomains.pop().forEach((item, domain) -> domains.put(item, new HashSet<>(domain)));
+        domains.undo(savedDomains[--savedCount]);
+    }
+
+    /**
+     * Returns the number of items that are currently placed within a bag.
+     *
+     * @return an integer
+     */
+    public int getAssignedCount() {
+        return assignment.getAssignedCount();
+    }
+
+    /**
+     * Returns true if the given item can be added to the given bag without violating any constraints. Only the
+     * constraints whose scope includes the item or the bag are tested, since no other constraint's result can change by
+     * adding the item, plus the constraints waiting for a complete assignment if adding the item completes it. They
+     * are tested through the {@link ConstraintKernel} of the compiled problem.
+     *
+     * @param bag  The {@link Bag} to add the item to.
+     * @param item The {@link Item} to add.
+     * @return true if it can be added, false otherwise
+     */
+    public boolean canAdd(Bag bag, Item item) {
+        int i = item.getIndex();
+        if (assignment.isAssigned(i)) return false;
+
+        assignment.assign(i, bag.getIndex());
+        boolean valid = problem.getKernel().allows(assignment, i, bag.getIndex());
+        assignment.unassign(i);
+
+        return valid;
     }
 
     /**
      * Returns whether the current CSP satisfies all the associated constraints and if all the items are placed within a bag.
+     * The constraints are only tested once the assignment is complete.
      *
      * @return true if conditions satisfied, false otherwise
      */
     public boolean isValid() {
-        return getConstraints().stream().allMatch(constraint -> constraint.test(this) == Constraint.Result.PASSED) &&
-                getItems().stream().allMatch(Item::hasAssignment);
+        return assignment.isComplete() && problem.getKernel().isSatisfied(assignment);
     }
 
     /**
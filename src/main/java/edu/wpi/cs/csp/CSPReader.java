@@ -8,29 +8,28 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * This class represents the parser to handle reading the input file and setting up the CSP.
+ * This class represents the parser to handle reading the input file and setting up the CSP. The state of each read is
+ * kept in a {@link Parse} of its own, so one reader can be shared by any number of threads.
  *
  * @author Daniel Beckwith
  */
 public class CSPReader {
 
     private static final String SECTION_PREFIX = "#####";
-    private static CSPReader instance = new CSPReader();
-    private List<String[]> bagLines;
-    private boolean addedBags;
+    private static final CSPReader instance = new CSPReader();
 
     /**
      * Creates a CSPReader instance.
      */
-    private CSPReader() {
-        bagLines = new ArrayList<>();
-    }
+    public CSPReader() {}
 
     /**
-     * Returns the singleton CSPReader instance.
+     * Returns a shared CSPReader instance.
      *
      * @return a CSPReader
+     * @deprecated readers keep no state, so create one with {@link #CSPReader()} instead
      */
+    @Deprecated
     public static CSPReader getInstance() {
         return instance;
     }
@@ -44,22 +43,20 @@ public class CSPReader {
      */
     public CSP read(InputStream in) throws IOException {
         BufferedReader r = new BufferedReader(new InputStreamReader(in));
-        CSP csp = new CSP();
+        Parse parse = new Parse();
+        CSP csp = parse.csp;
 
         String line;
-        bagLines.clear();
-        addedBags = false;
 
         r.readLine(); // read first section heading
         for (int section = 1; section <= 8; section++) {
             while ((line = r.readLine()) != null && // while not the end of the stream
                     !(line = line.trim()).startsWith(SECTION_PREFIX)) { // and not a section heading
-                processLine(section, csp, line.split("\\s+"));
+                processLine(section, parse, line.split("\\s+"));
             }
         }
-        if (!addedBags) {
-            createBags(csp, 0, csp.getItems().size());
-            addedBags = true;
+        if (!parse.addedBags) {
+            createBags(parse, 0, csp.getItems().size());
         }
 
         return csp;
@@ -69,25 +66,24 @@ public class CSPReader {
      * Processes a single line in a given section of the input. Each line should correspond to one object in the CSP.
      *
      * @param section the section number, which determines what types of object this line will contain
-     * @param csp     the CSP to update
+     * @param parse   the state of the read, holding the CSP to update
      * @param parts   the parts of the line (space-separated)
      * @throws NumberFormatException if there was an error coercing a line part to a number
      */
-    private void processLine(int section, CSP csp, String[] parts) throws NumberFormatException {
-        if (section > 3 && !addedBags) {
-            createBags(csp, 0, csp.getItems().size());
-            addedBags = true;
+    private void processLine(int section, Parse parse, String[] parts) throws NumberFormatException {
+        CSP csp = parse.csp;
+        if (section > 3 && !parse.addedBags) {
+            createBags(parse, 0, csp.getItems().size());
         }
         switch (section) {
             case 1: // items
                 csp.getItems().add(new Item(parts[0], Integer.parseInt(parts[1])));
                 break;
             case 2: // bags
-                bagLines.add(parts);
+                parse.bagLines.add(parts);
                 break;
             case 3: // fitting limits
-                createBags(csp, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
-                addedBags = true;
+                createBags(parse, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
                 break;
             case 4: // inclusion
             {
@@ -131,14 +127,16 @@ public class CSPReader {
     }
 
     /**
-     * Creates all of the bags given the CSP, minimum size and maximum size for each bag.
+     * Creates all of the bags given the state of the read, minimum size and maximum size for each bag.
      *
-     * @param csp     The {@link CSP} associated with the bags.
+     * @param parse   The {@link Parse} holding the bag lines and the {@link CSP} associated with the bags.
      * @param minSize The minimum size for each bag.
      * @param maxSize The maximum size for each bag.
      */
-    private void createBags(CSP csp, int minSize, int maxSize) {
-        bagLines.forEach(line -> {
+    private void createBags(Parse parse, int minSize, int maxSize) {
+        CSP csp = parse.csp;
+        parse.addedBags = true;
+        parse.bagLines.forEach(line -> {
             Bag bag = new Bag(line[0], maxSize, Integer.parseInt(line[1]));
             csp.getBags().add(bag);
             csp.getConstraints().add(new MinSizeConstraint(bag, minSize));
@@ -147,4 +145,14 @@ public class CSPReader {
             csp.getConstraints().add(new MaxCapacityConstraint(bag));
         });
     }
+
+    /**
+     * The state of a single read.
+     */
+    private static final class Parse {
+
+        private final CSP csp = new CSP();
+        private final List<String[]> bagLines = new ArrayList<>();
+        private boolean addedBags = false;
+    }
 }
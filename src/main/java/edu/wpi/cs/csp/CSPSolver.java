@@ -1,206 +1,683 @@
 package edu.wpi.cs.csp;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * This class represents the solver for the constraint satisfaction problems.
+ * This class represents the solver for the constraint satisfaction problems. A solver keeps no state between calls,
+ * so one instance can be shared by any number of threads.
  *
  * @author Daniel Beckwith
  */
 public class CSPSolver {
 
-    private static CSPSolver instance = new CSPSolver();
+    /**
+     * The ways a solve can end: with a solution, with proof that there is none, or with neither because the search was
+     * cancelled or ran out of its time or node budget.
+     */
+    enum Outcome {
+        SOLVED, UNSOLVABLE, STOPPED
+    }
+
+    private static final BitSet ABORTED = new BitSet();
+    private static final BitSet OPEN = new BitSet();
+    private static final BitSet DESCEND = new BitSet();
+    private static final CSPSolver instance = new CSPSolver();
 
     /**
      * Creates a CSPSolver instance.
      */
-    private CSPSolver() {}
+    public CSPSolver() {}
 
     /**
-     * Returns the singleton CSPSolver instance.
+     * Returns a shared CSPSolver instance.
      *
      * @return a CSPSolver
+     * @deprecated solvers keep no state, so create one with {@link #CSPSolver()} instead
      */
+    @Deprecated
     public static CSPSolver getInstance() {
         return instance;
     }
 
     /**
-     * Returns whether a solution was found to the specified CSP.
+     * Returns the solution to the specified CSP found using the specified settings, if there is one. The search runs
+     * on a private copy of the CSP, which is left untouched, so the same parsed CSP can be solved by several threads at
+     * once.
+     *
+     * @param csp     The {@link CSP} to solve.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return an {@link Optional&lt;{@link Solution}&gt;}
+     */
+    public Optional<Solution> findSolution(CSP csp, SolverOptions options) {
+        CSP copy = copy(csp, options);
+        SearchState state = prepare(copy, options);
+        if (state == null) {
+            return Optional.empty();
+        }
+        state.setOrigin(csp);
+        if (run(copy, state) != null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Solution(csp, copy));
+    }
+
+    /**
+     * Returns whether a solution was found to the specified CSP. If so, the items of the CSP are added to the bags of
+     * the solution. The search works on the CSP itself, so it must not be solved by another thread at the same time.
      *
      * @param csp The {@link CSP} to solve.
      * @return true if solved, false otherwise
      */
     public boolean solve(CSP csp) {
-        // set up domains
-        csp.getItems().forEach(item -> csp.getDomains().put(item, csp.getBags().stream()
-                .collect(Collectors.toSet())));
-
-        return backtracking(0, csp);
+        return solve(csp, new SolverOptions());
     }
 
     /**
-     * Recursive method to solve the CSP.
+     * Returns whether a solution was found to the specified CSP using the specified settings. If so, the items of the
+     * CSP are added to the bags of the solution. No solution is found if the search runs out of its time or node budget
+     * first. The search works on the CSP itself, or on a copy with its equal items merged if there are any to merge,
+     * so it must not be solved by another thread at the same time.
      *
-     * @param depth The recursion depth currently being processed.
-     * @param csp   The {@link CSP} to solve.
+     * @param csp     The {@link CSP} to solve.
+     * @param options The {@link SolverOptions} to solve with.
      * @return true if solved, false otherwise
      */
-    private boolean backtracking(int depth, CSP csp) {
-        if (csp.isValid()) {
-            return true;
+    public boolean solve(CSP csp, SolverOptions options) {
+        return attempt(csp, options) == Outcome.SOLVED;
+    }
+
+    /**
+     * Solves the specified CSP like {@link #solve(CSP, SolverOptions)}, telling apart a search that proved there is no
+     * solution from one that was cancelled or ran out of its time or node budget first.
+     *
+     * @param csp     The {@link CSP} to solve.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return an {@link Outcome}
+     */
+    Outcome attempt(CSP csp, SolverOptions options) {
+        boolean merging = options.isEqualityMerging() &&
+                csp.getConstraints().stream().anyMatch(EqualityConstraint.class::isInstance);
+        if (!merging) {
+            SearchState state = prepare(csp, options);
+            return state == null ? Outcome.UNSOLVABLE : outcome(run(csp, state));
         }
 
-        // Get the next "variable" to evaluate
-        Optional<Item> nextItem = getNextItem(csp);
-        if (nextItem.isPresent()) {
-            Item item = nextItem.get();
-
-            // neighbors are items that have a constraint involving that item and the current item
-            List<Item> neighbors = csp.getItems().stream()
-                    .filter(item2 -> !item2.equals(item))
-                    .filter(item2 -> csp.getConstraints().stream()
-                            .anyMatch(constraint -> constraint.involves(item) && constraint.involves(item2)))
-                    .collect(Collectors.toList());
-
-            // sort the bags by comparing the number of possible values for neighbors that adding the current item to
-            // that bag would allow, in reverse because we want the largest number of possible values first
-            // this is the least-constraining-value heuristic
-            List<Bag> orderedBags = csp.getDomains().get(item)
-                    .stream()
-                    .collect(Collectors.toList());
-            Collections.sort(orderedBags, Comparator.<Bag, Long>comparing(bag -> possibleValues(item, neighbors, bag, csp)).reversed());
-
-            // go through each possible value
-            for (Bag bag : orderedBags) {
-                // save the variable domains so we can undo the changes
-                csp.saveDomains();
-
-                // do forward checking
-                forwardCheck(bag, item, csp);
-
-                // set the item's bag to the current bag
-                bag.add(item);
-
-                // recursive backtracking
-                boolean result = backtracking(depth + 1, csp);
-                if (result) {
-                    return true;
+        // search a copy with the items tied together by equality constraints merged, then hand its solution back
+        CSP copy = csp.mergeEqualItems();
+        SearchState state = prepare(copy, options);
+        if (state != null) {
+            state.setOrigin(csp);
+        }
+        Outcome outcome = state == null ? Outcome.UNSOLVABLE : outcome(run(copy, state));
+        if (outcome != Outcome.SOLVED) {
+            // the items that fit in no bag on their own are still reported
+            csp.compile();
+            csp.enforceNodeConsistency();
+            return outcome;
+        }
+        csp.copyAssignment(copy);
+        return Outcome.SOLVED;
+    }
+
+    /**
+     * Returns the outcome of a solve whose search ended with the given result.
+     *
+     * @param result The result of {@link #run(CSP, SearchState)}.
+     * @return an {@link Outcome}
+     */
+    private static Outcome outcome(BitSet result) {
+        if (result == null) return Outcome.SOLVED;
+        return result == ABORTED ? Outcome.STOPPED : Outcome.UNSOLVABLE;
+    }
+
+    /**
+     * Returns a private copy of the specified CSP to search, with the items tied together by equality constraints
+     * merged into one if the specified settings say so.
+     *
+     * @param csp     The {@link CSP} to copy.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return a {@link CSP}
+     */
+    CSP copy(CSP csp, SolverOptions options) {
+        return options.isEqualityMerging() ? csp.mergeEqualItems() : csp.copy();
+    }
+
+    /**
+     * Returns the solution to the specified CSP that minimizes the {@link Objective} of the specified settings, if
+     * there is one, found by branch-and-bound. Every solution found becomes the incumbent if it is cheaper than the
+     * last, and the search carries on below only the partial assignments whose lower bound is cheaper still. If the
+     * time or node budget runs out first, the best solution found so far is returned without being proven optimal. The
+     * search runs on a private copy of the CSP, which is left untouched.
+     *
+     * @param csp     The {@link CSP} to optimize.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return an {@link Optional&lt;{@link Solution}&gt;}
+     */
+    public Optional<Solution> optimize(CSP csp, SolverOptions options) {
+        CSP copy = copy(csp, options);
+        SearchState state = prepare(copy, options);
+        if (state == null) {
+            return Optional.empty();
+        }
+        state.setObjective(options.getObjective());
+        state.setOrigin(csp);
+        boolean exhausted = run(copy, state) != ABORTED;
+        if (state.getBest() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new Solution(csp, copy, state.getBest(), exhausted));
+    }
+
+    /**
+     * Returns an iterator over every solution to the specified CSP. The search only runs as far as the next solution
+     * each time one is asked for, on a private copy of the CSP. Restarts and backjumping are not used, and the
+     * iteration ends early if the search runs out of its time or node budget.
+     *
+     * @param csp     The {@link CSP} to solve.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return an {@link Iterator&lt;{@link Solution}&gt;}
+     */
+    public Iterator<Solution> iterateSolutions(CSP csp, SolverOptions options) {
+        CSP copy = copy(csp, options);
+        SolutionEnumerator enumerator = enumerate(csp, copy, options, false);
+        return new Iterator<Solution>() {
+
+            private boolean advanced = false;
+            private boolean found = false;
+
+            @Override
+            public boolean hasNext() {
+                if (!advanced) {
+                    found = enumerator != null && enumerator.next();
+                    advanced = true;
                 }
+                return found;
+            }
+
+            @Override
+            public Solution next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                advanced = false;
+                return new Solution(csp, copy);
+            }
+        };
+    }
+
+    /**
+     * Returns a lazy stream of every solution to the specified CSP, searched for as it is consumed as by
+     * {@link #iterateSolutions(CSP, SolverOptions)}.
+     *
+     * @param csp     The {@link CSP} to solve.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return a {@link Stream&lt;{@link Solution}&gt;}
+     */
+    public Stream<Solution> streamSolutions(CSP csp, SolverOptions options) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterateSolutions(csp, options),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Returns the number of solutions to the specified CSP, without building any of them. Only one solution out of
+     * each class of solutions that differ by swapping interchangeable bags is searched for, and the size of its class
+     * is counted instead. If the search runs out of its time or node budget, the solutions counted so far are returned.
+     *
+     * @param csp     The {@link CSP} to solve.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return a long
+     * @throws ArithmeticException if the number does not fit in a long
+     */
+    public long countSolutions(CSP csp, SolverOptions options) {
+        return count(csp, options).getSolutions();
+    }
+
+    /**
+     * Returns the number of classes of solutions to the specified CSP, where the solutions in a class only differ by
+     * swapping interchangeable bags. If the search runs out of its time or node budget, the classes counted so far are
+     * returned.
+     *
+     * @param csp     The {@link CSP} to solve.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return a long
+     */
+    public long countSolutionClasses(CSP csp, SolverOptions options) {
+        return count(csp, options).getClasses();
+    }
 
-                // undo setting the item's bag to the current bag
-                bag.remove(item);
+    /**
+     * Returns both the number of solutions to the specified CSP and the number of classes they fall into, counted by a
+     * single search that finds one solution out of each class. If the search runs out of its time or node budget, what
+     * was counted so far is returned.
+     *
+     * @param csp     The {@link CSP} to solve.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return a {@link SolutionCount}
+     */
+    public SolutionCount count(CSP csp, SolverOptions options) {
+        SolutionEnumerator enumerator = enumerate(csp, copy(csp, options), options, true);
+        SolutionCount count = new SolutionCount();
+        while (enumerator != null && enumerator.next()) {
+            count.add(enumerator);
+        }
+        return count;
+    }
 
-                // undo any domain changes
-                csp.restoreDomains();
+    /**
+     * Prepares a copy of a CSP for searching every solution.
+     *
+     * @param csp           The {@link CSP} the solutions are for.
+     * @param copy          The copy of the {@link CSP} to search.
+     * @param options       The {@link SolverOptions} to solve with.
+     * @param breakSymmetry Whether to find one solution out of each class of symmetric solutions.
+     * @return the {@link SolutionEnumerator}, or null if the CSP is already known to be infeasible
+     */
+    private SolutionEnumerator enumerate(CSP csp, CSP copy, SolverOptions options, boolean breakSymmetry) {
+        // a restart would find the same solutions again, and every subtree is searched anyway
+        SolverOptions enumeration = new SolverOptions(options);
+        enumeration.setRestarts(false);
+        enumeration.setBackjumping(false);
+        SearchState state = prepare(copy, enumeration);
+        if (state == null) {
+            return null;
+        }
+        // every solution is wanted, so identical items are told apart
+        state.setSymmetryBreaker(new SymmetryBreaker(copy.getProblem(), breakSymmetry, false));
+        state.setOrigin(csp);
+        state.startRun(Long.MAX_VALUE);
+        return new SolutionEnumerator(this, copy, state);
+    }
+
+    /**
+     * Compiles the specified CSP and propagates its initial domains, ready to be searched from the root.
+     *
+     * @param csp     The {@link CSP} to prepare.
+     * @param options The {@link SolverOptions} to solve with.
+     * @return the {@link SearchState} to search with, or null if the CSP is already known to be infeasible
+     */
+    SearchState prepare(CSP csp, SolverOptions options) {
+        // index the items and bags and set up domains
+        csp.compile();
+
+        // apply the unary constraints up front, any item that fits in no bag makes the CSP infeasible
+        if (!csp.enforceNodeConsistency().isEmpty()) {
+            return null;
+        }
+
+        Propagator propagator = options.isCapacityPropagation() ?
+                new CapacityPropagator(options.getPropagator().get()) :
+                options.getPropagator().get();
+        if (!propagator.initialize(csp)) {
+            return null;
+        }
+        return new SearchState(csp, options, propagator);
+    }
+
+    /**
+     * Searches a prepared CSP from the root, restarting whenever a run hits its failure limit if restarts are on. A run
+     * that ends any other way is conclusive.
+     *
+     * @param csp   The {@link CSP} to solve.
+     * @param state The {@link SearchState} of this solve.
+     * @return null if solved, {@link #ABORTED} if the search was stopped, the conflict set of the failure otherwise
+     */
+    private BitSet run(CSP csp, SearchState state) {
+        SolverOptions options = state.getOptions();
+        if (!options.isRestarts()) {
+            state.startRun(Long.MAX_VALUE);
+            return backtracking(0, csp, state);
+        }
+
+        for (int run = 0; ; run++) {
+            state.startRun(failureLimit(run, options));
+            BitSet result = backtracking(0, csp, state);
+            if (result != ABORTED || state.isStopped()) {
+                return result;
             }
-            // all value choices exhausted
-            return false;
         }
-        else {
-            // No other items
-            return false;
+    }
+
+    /**
+     * Searches a prepared CSP for its next solution, which is left as the assignment of the CSP. The first search
+     * starts from the root, and every later one carries on from the last solution found as if it had failed, so that
+     * every solution is found once as long as the search uses neither restarts nor backjumping.
+     *
+     * @param csp    The {@link CSP} to solve.
+     * @param state  The {@link SearchState} of this solve, with its run already started.
+     * @param resume Whether to carry on from the last solution found rather than start from the root.
+     * @return {@link Outcome#SOLVED} if there is another solution, {@link Outcome#UNSOLVABLE} if every solution has
+     * been found, {@link Outcome#STOPPED} if the search was stopped first
+     */
+    Outcome nextSolution(CSP csp, SearchState state, boolean resume) {
+        if (!resume) {
+            return outcome(backtracking(0, csp, state));
         }
+        // every level assigns one item, so the last solution is as deep as the number of items assigned
+        int depth = csp.getAssignment().getAssignedCount();
+        BitSet result = state.getBackjumper().all(state.getChoicePoint(depth).conflicts);
+        return outcome(backtracking(0, depth, result, csp, state));
+    }
+
+    /**
+     * Searches the subtree below the current partial assignment of a prepared CSP.
+     *
+     * @param depth The number of items assigned so far.
+     * @param csp   The {@link CSP} to solve.
+     * @param state The {@link SearchState} of this solve.
+     * @return an {@link Outcome}
+     */
+    Outcome search(int depth, CSP csp, SearchState state) {
+        return outcome(backtracking(depth, csp, state));
     }
 
     /**
-     * Returns an optional containing the next bag to process, if one exists.
+     * Adds the given item to the given bag at the next level and propagates the change. Must be undone with
+     * {@link #unassign(Item, Bag, CSP, SearchState)} whatever the result.
      *
-     * @param csp The {@link CSP} to get the next {@link Bag} from.
-     * @return an {@link Optional&lt;{@link Bag}&gt;}
+     * @param item  The {@link Item} to assign.
+     * @param bag   The {@link Bag} to add it to.
+     * @param csp   The {@link CSP} being solved.
+     * @param state The {@link SearchState} of this solve.
+     * @return false if propagation wiped out some domain, true otherwise
      */
-    private Optional<Item> getNextItem(CSP csp) {
-        return csp.getItems().stream()
-                .filter(item -> !item.hasAssignment()) // filter out assigned items
-                .min(Comparator // minimum
-                        .<Item, Long>comparing(item -> remainingValues(item, csp)) // first compare by remaining values
-                        .<Long>thenComparing(item -> -degree(item, csp))); // if RV is the same, go by max degree (min -degree)
+    boolean assign(Item item, Bag bag, CSP csp, SearchState state) {
+        // save the variable domains so we can undo the changes
+        csp.saveDomains();
+
+        // set the item's bag to the current bag
+        csp.getAssignment().assign(item.getIndex(), bag.getIndex());
+        state.getBackjumper().assign(item, bag);
+        state.getVariableOrdering().assigned(item, bag);
+
+        // prune the domains
+        boolean consistent = state.getPropagator().propagate(item, bag, csp);
+        state.getVariableOrdering().propagated(item, bag, consistent);
+        return consistent;
     }
 
     /**
-     * Returns true if the given item can be added to the given bag without violating any constraints
+     * Undoes the last call to {@link #assign(Item, Bag, CSP, SearchState)}.
      *
-     * @param bag
-     * @param item
-     * @param csp
-     * @return
+     * @param item  The {@link Item} that was assigned.
+     * @param bag   The {@link Bag} it was added to.
+     * @param csp   The {@link CSP} being solved.
+     * @param state The {@link SearchState} of this solve.
      */
-    private boolean canAdd(Bag bag, Item item, CSP csp) {
-        if (item.hasAssignment()) return false;
+    void unassign(Item item, Bag bag, CSP csp, SearchState state) {
+        // undo setting the item's bag to the current bag
+        state.getBackjumper().unassign();
+        csp.getAssignment().unassign(item.getIndex());
 
-        bag.add(item);
-        boolean valid = csp.getConstraints().stream()
-                .allMatch(constraint -> constraint.test(csp) != Constraint.Result.FAILED);
-        bag.remove(item);
+        // undo any domain changes
+        csp.restoreDomains();
+        state.getVariableOrdering().unassigned(item, bag);
+    }
 
-        return valid;
+    /**
+     * Returns the failure limit of the given run under the restart schedule.
+     *
+     * @param run     The zero-based number of the run.
+     * @param options The {@link SolverOptions} giving the schedule.
+     * @return a long
+     */
+    private long failureLimit(int run, SolverOptions options) {
+        if (options.getRestartSchedule() == SolverOptions.RestartSchedule.GEOMETRIC) {
+            return (long) Math.min(Long.MAX_VALUE, options.getRestartBase() * Math.pow(options.getRestartFactor(), run));
+        }
+
+        // the luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+        long size = 1;
+        int sequence = 0;
+        while (size < run + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        long index = run;
+        while (size - 1 != index) {
+            size = (size - 1) >> 1;
+            sequence--;
+            index %= size;
+        }
+        return options.getRestartBase() << sequence;
     }
 
     /**
-     * Returns the number of remaining possible values for the given item.
+     * Searches the subtree below the current partial assignment without recursion. The path from the top of the subtree
+     * is kept on the explicit stack of {@link ChoicePoint}s of the search state, one per level, so the depth of the
+     * search is only bounded by the heap, and the choice points are reused instead of allocating anything per node.
+     * <p>
+     * Each failure is explained by a conflict set of levels, and a level that is not in the conflict set of the failure
+     * below it is jumped over instead of trying its other values. Bags and items that are symmetric to ones already
+     * tried are skipped as set out in {@link SymmetryBreaker}.
      *
-     * @param item
-     * @param csp
-     * @return
+     * @param top   The number of items assigned above the subtree.
+     * @param csp   The {@link CSP} to solve.
+     * @param state The {@link SearchState} of this solve.
+     * @return null if solved, {@link #ABORTED} if the run hit its failure limit or was stopped, the conflict set of the
+     * failure otherwise
      */
-    private long remainingValues(Item item, CSP csp) {
-        return csp.getDomains().get(item).size();
+    private BitSet backtracking(int top, CSP csp, SearchState state) {
+        return backtracking(top, top, open(top, csp, state), csp, state);
     }
 
     /**
-     * Returns the degree of the given item, or the number of binary constraints it is involved in with unassigned items.
+     * Carries on searching the subtree below the given top level from the node at the given depth, whose result so far
+     * is given, as set out in {@link #backtracking(int, CSP, SearchState)}. A solution leaves every choice point on its
+     * path as it is, so the search can carry on from it later.
      *
-     * @param item
-     * @param csp
-     * @return
+     * @param top    The number of items assigned above the subtree.
+     * @param depth  The number of items assigned above the node to carry on from.
+     * @param result The result of the node so far, {@link #OPEN} if it has bags left to try.
+     * @param csp    The {@link CSP} to solve.
+     * @param state  The {@link SearchState} of this solve.
+     * @return null if solved, {@link #ABORTED} if the run hit its failure limit or was stopped, the conflict set of the
+     * failure otherwise
      */
-    private long degree(Item item, CSP csp) {
-        return csp.getItems().stream()
-                .filter(item2 -> !item2.equals(item) && !item2.hasAssignment()) // filter out items with assignments
-                .mapToLong(item2 -> csp.getConstraints().stream() // for each item
-                        .filter(constraint -> constraint.involves(item) && constraint.involves(item2)) // count all constraints involving both items
-                        .count())
-                .sum(); // sum over all neighbors
+    private BitSet backtracking(int top, int depth, BitSet result, CSP csp, SearchState state) {
+        while (true) {
+            if (result == OPEN) {
+                result = tryNextValue(depth, csp, state);
+            }
+            if (result == DESCEND) {
+                depth++;
+                result = open(depth, csp, state);
+                continue;
+            }
+            // the node at this depth is done, so hand its result back to the level above
+            if (depth == top) {
+                return result;
+            }
+            depth--;
+            result = finishValue(depth, result, csp, state);
+        }
     }
 
     /**
-     * Returns the number of possible values the neighbors of the given item can take on if the item was added to the given bag.
+     * Starts the node at the given depth, choosing its item and ordering its bags if it is neither a leaf nor pruned.
      *
-     * @param item
-     * @param neighbors
-     * @param bag
-     * @param csp
-     * @return
+     * @param depth The number of items assigned so far.
+     * @param csp   The {@link CSP} to solve.
+     * @param state The {@link SearchState} of this solve.
+     * @return {@link #OPEN} if the node has bags to try, otherwise the result of the node as for
+     * {@link #backtracking(int, CSP, SearchState)}
      */
-    private long possibleValues(Item item, Collection<Item> neighbors, Bag bag, CSP csp) {
-        bag.add(item);
-        long count = neighbors.stream()
-                .mapToLong(neighbor -> csp.getBags().stream() // for each neighbor
-                        .filter(bag2 -> canAdd(bag2, neighbor, csp)) // count the number of bags that the neighbor could be added to
-                        .count())
-                .sum(); // sum over all neighbors
-        bag.remove(item);
+    private BitSet open(int depth, CSP csp, SearchState state) {
+        Backjumper backjumper = state.getBackjumper();
+        ChoicePoint point = state.getChoicePoint(depth);
+        if (csp.isValid()) {
+            if (!state.isOptimizing()) {
+                state.solved(csp.getAssignment());
+                return null;
+            }
+            // keep the solution and look for a cheaper one, as if this one had failed
+            state.improve(csp.getAssignment());
+            return backjumper.all(point.conflicts);
+        }
+        if (!state.enterNode()) {
+            return ABORTED;
+        }
+        // a subtree that cannot beat the incumbent fails because of every assignment above it
+        if (state.isOptimizing() && !state.canImprove(csp.getAssignment())) {
+            return backjumper.all(point.conflicts);
+        }
+
+        // Get the next "variable" to evaluate
+        int item = state.getVariableOrdering().peek();
+        if (item < 0) {
+            // No other items
+            return backjumper.all(point.conflicts);
+        }
+        point.item = csp.getItem(item);
+        point.count = orderValues(point.item, csp, state, point.bags);
+        point.next = 0;
+        point.bag = null;
+
+        // the bags already removed from the domain are ruled out by earlier levels
+        backjumper.explainDomain(point.item, point.conflicts);
+        return OPEN;
+    }
+
+    /**
+     * Tries the next bags of the node at the given depth until one can be descended into.
+     *
+     * @param depth The number of items assigned above the node.
+     * @param csp   The {@link CSP} to solve.
+     * @param state The {@link SearchState} of this solve.
+     * @return {@link #DESCEND} if a bag was assigned without wiping out any domain, otherwise the result of the node
+     */
+    private BitSet tryNextValue(int depth, CSP csp, SearchState state) {
+        Backjumper backjumper = state.getBackjumper();
+        ChoicePoint point = state.getChoicePoint(depth);
+        while (point.next < point.count) {
+            Bag bag = csp.getBag(point.bags[point.next++]);
+
+            // skip bags that would complete a learned nogood
+            if (backjumper.isNogood(point.item, bag, point.conflicts)) {
+                continue;
+            }
+            // skip empty bags that would only repeat the subtree of an earlier interchangeable bag, which is
+            // blamed on every level since any of them could have filled that bag
+            if (!state.getSymmetryBreaker().isCanonical(csp.getAssignment(), bag.getIndex())) {
+                backjumper.all(point.conflicts);
+                continue;
+            }
+
+            // assign and prune the domains, then go down a level if no domain was wiped out
+            point.bag = bag;
+            if (assign(point.item, bag, csp, state)) {
+                return DESCEND;
+            }
+            // the choice point below is free to hold the explanation
+            BitSet result = backjumper.explainWipeout(state.getChoicePoint(depth + 1).conflicts);
+            if (state.fail(point.item)) {
+                result = ABORTED;
+            }
+            result = finishValue(depth, result, csp, state);
+            if (result != OPEN) {
+                return result;
+            }
+        }
+        return exhaust(point, state);
+    }
+
+    /**
+     * Undoes the bag being tried by the node at the given depth once it has failed, and decides whether the node
+     * carries on with its other bags.
+     *
+     * @param depth  The number of items assigned above the node.
+     * @param result The result of trying the bag.
+     * @param csp    The {@link CSP} to solve.
+     * @param state  The {@link SearchState} of this solve.
+     * @return {@link #OPEN} if the node has more bags to try, otherwise the result of the node
+     */
+    private BitSet finishValue(int depth, BitSet result, CSP csp, SearchState state) {
+        if (result == null) {
+            return null;
+        }
+        ChoicePoint point = state.getChoicePoint(depth);
+        Bag bag = point.bag;
+        point.bag = null;
+
+        // undo the assignment and any domain changes
+        unassign(point.item, bag, csp, state);
+
+        // if this item is not to blame for the failure, or the run is over, jump straight back
+        if (result == ABORTED || !result.get(depth)) {
+            return result;
+        }
+        result.clear(depth);
+        point.conflicts.or(result);
+
+        // no item identical to this one can go in this bag either while the levels above stand
+        if (!state.getSymmetryBreaker().exclude(point.item, bag, csp)) {
+            state.getBackjumper().all(point.conflicts);
+            return exhaust(point, state);
+        }
+        return OPEN;
+    }
+
+    /**
+     * Fails a node whose every bag has been tried.
+     *
+     * @param point The {@link ChoicePoint} of the node.
+     * @param state The {@link SearchState} of this solve.
+     * @return {@link #ABORTED} if the run hit its failure limit, the conflict set of the node otherwise
+     */
+    private BitSet exhaust(ChoicePoint point, SearchState state) {
+        // all value choices exhausted, so the assignments in the conflict set can never be extended together
+        state.getBackjumper().learn(point.conflicts);
+        return state.fail(point.item) ? ABORTED : point.conflicts;
+    }
+
+    /**
+     * Fills the given array with the indices of the bags in the domain of the given item, in the order they should be
+     * tried.
+     *
+     * @param item  The {@link Item} about to be assigned.
+     * @param csp   The {@link CSP} being solved.
+     * @param state The {@link SearchState} of this solve.
+     * @param bags  The array to fill, with room for every bag.
+     * @return the number of bags
+     */
+    int orderValues(Item item, CSP csp, SearchState state, int[] bags) {
+        // sort the bags by comparing the number of possible values for neighbors that adding the current item to
+        // that bag would allow, in reverse because we want the largest number of possible values first
+        // this is the least-constraining-value heuristic
+        long[] scores = state.getValueOrdering().score(item);
+        boolean restarts = state.getOptions().isRestarts();
+        Domains domains = csp.getDomains();
+        int itemIndex = item.getIndex();
+        int count = 0;
+        for (int b = domains.next(itemIndex, 0); b >= 0; b = domains.next(itemIndex, b + 1)) {
+            // insertion sort, which keeps bags with the same score in index order
+            int k = count++;
+            while (k > 0 && comesBefore(b, bags[k - 1], scores, restarts, csp, state)) {
+                bags[k] = bags[k - 1];
+                k--;
+            }
+            bags[k] = b;
+        }
         return count;
     }
 
     /**
-     * Performs forward checking by mock-adding the given item to the given bag and updating the domains of all items.
+     * Returns whether the first bag should be tried before the second.
      *
-     * @param bag
-     * @param item
-     * @param csp
+     * @param bag1     The index of the first bag.
+     * @param bag2     The index of the second bag.
+     * @param scores   The least-constraining-value scores of the bags.
+     * @param restarts Whether ties are broken randomly so that each run explores differently.
+     * @param csp      The {@link CSP} being solved.
+     * @param state    The {@link SearchState} of this solve.
+     * @return true if the first bag comes first, false otherwise
      */
-    private void forwardCheck(Bag bag, Item item, CSP csp) {
-        bag.add(item);
-        csp.getItems().stream()
-                .filter(item2 -> !item2.hasAssignment()) // for each unassigned item
-                .forEach(item2 -> csp.getDomains().get(item2) // get its domain
-                        .removeIf(domainBag -> !canAdd(domainBag, item2, csp))); // remove any bags that this item can no longer be added to
-        bag.remove(item);
+    private boolean comesBefore(int bag1, int bag2, long[] scores, boolean restarts, CSP csp, SearchState state) {
+        if (scores[bag1] != scores[bag2]) return scores[bag1] > scores[bag2];
+        return restarts && state.getPriority(csp.getBag(bag1)) < state.getPriority(csp.getBag(bag2));
     }
 }
@@ -0,0 +1,144 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This class represents the global bin-packing propagator that reasons over the weight and size limits of all the bags
+ * at once, on top of another propagator. For each bag it bounds the weight and number of items that can still be added
+ * from the unassigned items whose domains contain it, so under-filled bags are found long before every item has been
+ * assigned. An item that a bag cannot reach its minimum without has its domain reduced to that bag, and the total
+ * unassigned weight and item count are checked against the total room and total shortfall of all the bags.
+ *
+ * @author Daniel Beckwith
+ */
+public class CapacityPropagator implements Propagator {
+
+    private final Propagator propagator;
+    private int[] minLoads;
+    private int[] minCounts;
+    private int[] candidateCounts;
+    private long[] candidateWeights;
+
+    /**
+     * Creates a CapacityPropagator instance that runs after the specified propagator.
+     *
+     * @param propagator The {@link Propagator} to run first.
+     */
+    public CapacityPropagator(Propagator propagator) {
+        this.propagator = propagator;
+    }
+
+    /**
+     * Returns the propagator that runs before the capacity reasoning.
+     *
+     * @return a {@link Propagator}
+     */
+    public Propagator getPropagator() {
+        return propagator;
+    }
+
+    @Override
+    public boolean initialize(CSP csp) {
+        int bagCount = csp.getBags().size();
+        minLoads = new int[bagCount];
+        minCounts = new int[bagCount];
+        candidateCounts = new int[bagCount];
+        candidateWeights = new long[bagCount];
+
+        // collect the lower limits of each bag from its constraints
+        for (Bag bag : csp.getBags()) {
+            int b = bag.getIndex();
+            for (Constraint constraint : csp.getConstraints(bag)) {
+                if (constraint instanceof MinCapacityPercentageConstraint) {
+                    MinCapacityPercentageConstraint minCapacity = (MinCapacityPercentageConstraint) constraint;
+                    minLoads[b] = Math.max(minLoads[b],
+                            (int) Math.floor(minCapacity.getMinPercentage() * bag.getCapacity()));
+                }
+                else if (constraint instanceof MinSizeConstraint) {
+                    minCounts[b] = Math.max(minCounts[b], ((MinSizeConstraint) constraint).getMinSize());
+                }
+            }
+        }
+
+        return propagator.initialize(csp) && propagateCapacity(csp);
+    }
+
+    @Override
+    public boolean propagate(Item item, Bag bag, CSP csp) {
+        return propagator.propagate(item, bag, csp) && propagateCapacity(csp);
+    }
+
+    /**
+     * Prunes the domains against the bag limits until nothing changes.
+     *
+     * @param csp The {@link CSP} being searched.
+     * @return false if some bag can no longer be filled or some item's domain was wiped out, true otherwise
+     */
+    private boolean propagateCapacity(CSP csp) {
+        Domains domains = csp.getDomains();
+        Problem problem = csp.getProblem();
+        Assignment assignment = csp.getAssignment();
+        int itemCount = domains.getItemCount();
+        int bagCount = domains.getBagCount();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            // tally the unassigned items that could still go in each bag
+            long unassignedWeight = 0;
+            int unassignedCount = 0;
+            for (int b = 0; b < bagCount; b++) {
+                candidateCounts[b] = 0;
+                candidateWeights[b] = 0;
+            }
+            for (int i = 0; i < itemCount; i++) {
+                if (assignment.isAssigned(i)) continue;
+                int weight = problem.getWeight(i);
+                int count = problem.getCount(i);
+                unassignedWeight += weight;
+                unassignedCount += count;
+                for (int b = domains.next(i, 0); b >= 0; b = domains.next(i, b + 1)) {
+                    // an item too heavy for the room left in a bag, or a bag with no slots left, is not a candidate
+                    if (!assignment.hasRoom(i, b)) {
+                        domains.remove(i, b);
+                        changed = true;
+                        continue;
+                    }
+                    candidateCounts[b] += count;
+                    candidateWeights[b] += weight;
+                }
+                if (domains.isEmpty(i)) return false;
+            }
+
+            // every bag must still be able to reach its minimum weight and size
+            long room = 0;
+            long shortfall = 0;
+            int slots = 0;
+            int missing = 0;
+            for (int b = 0; b < bagCount; b++) {
+                int weightNeeded = minLoads[b] - assignment.getTotalWeight(b);
+                int countNeeded = minCounts[b] - assignment.size(b);
+                if (candidateWeights[b] < weightNeeded || candidateCounts[b] < countNeeded) return false;
+                room += problem.getCapacity(b) - assignment.getTotalWeight(b);
+                shortfall += Math.max(0, weightNeeded);
+                slots += problem.getMaxItems(b) - assignment.size(b);
+                missing += Math.max(0, countNeeded);
+            }
+
+            // the unassigned items must fit in the room left, and be enough to make up every bag's shortfall
+            if (unassignedWeight > room || unassignedWeight < shortfall ||
+                    unassignedCount > slots || unassignedCount < missing) return false;
+
+            // an item without which a bag cannot reach its minimum has to go in that bag
+            for (int i = 0; i < itemCount; i++) {
+                if (assignment.isAssigned(i)) continue;
+                for (int b = domains.next(i, 0); b >= 0; b = domains.next(i, b + 1)) {
+                    if (candidateWeights[b] - problem.getWeight(i) < minLoads[b] - assignment.getTotalWeight(b) ||
+                            candidateCounts[b] - problem.getCount(i) < minCounts[b] - assignment.size(b)) {
+                        if (domains.assign(i, b)) changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package edu.wpi.cs.csp;
+
+import java.util.BitSet;
+
+/**
+ * This class represents one level of the explicit search stack of the {@link CSPSolver}: the item chosen at that level,
+ * the bags it will try in order, the next of them to try and the conflict set gathered from the ones that failed. A
+ * search keeps one choice point per level and reuses it every time the search gets back to that depth, so searching
+ * allocates nothing per node.
+ *
+ * @author Daniel Beckwith
+ */
+final class ChoicePoint {
+
+    Item item;
+    final int[] bags;
+    int count;
+    int next;
+    Bag bag;
+    final BitSet conflicts;
+
+    /**
+     * Creates a ChoicePoint instance with room for the specified number of bags.
+     *
+     * @param bagCount The number of bags of the CSP.
+     */
+    ChoicePoint(int bagCount) {
+        bags = new int[bagCount];
+        conflicts = new BitSet();
+    }
+}
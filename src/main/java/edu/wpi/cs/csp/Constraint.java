@@ -1,5 +1,9 @@
 package edu.wpi.cs.csp;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This interface defines the common functionality between the constraints.
  *
@@ -12,12 +16,12 @@ public interface Constraint {
     }
 
     /**
-     * Tests the constraint for being satisfied.
+     * Tests the constraint for being satisfied by the given assignment.
      *
-     * @param csp
+     * @param assignment
      * @return a {@link Result}
      */
-    Result test(CSP csp);
+    Result test(Assignment assignment);
 
     /**
      * Tests whether this constraint uses the given item as a parameter.
@@ -26,4 +30,49 @@ public interface Constraint {
      * @return
      */
     boolean involves(Item item);
+
+    /**
+     * Returns a copy of this constraint over the corresponding items and bags of another CSP.
+     *
+     * @param items The {@link Item} of the other CSP corresponding to each item of this constraint's CSP.
+     * @param bags  The {@link Bag} of the other CSP corresponding to each bag of this constraint's CSP.
+     * @return a {@link Constraint}
+     */
+    Constraint copy(Map<Item, Item> items, Map<Bag, Bag> bags);
+
+    /**
+     * Returns the items whose assignments this constraint reads.
+     *
+     * @return a {@link List&lt;{@link Item}&gt;}
+     */
+    List<Item> getScopeItems();
+
+    /**
+     * Returns the bags whose contents this constraint reads, regardless of which items are in them.
+     *
+     * @return a {@link List&lt;{@link Bag}&gt;}
+     */
+    default List<Bag> getScopeBags() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns whether this constraint is ignored until every item has been assigned, so that it also has to be tested
+     * whenever an assignment is completed.
+     *
+     * @return true if it waits for a complete assignment, false otherwise
+     */
+    default boolean requiresCompleteAssignment() {
+        return false;
+    }
+
+    /**
+     * Tests whether this constraint depends on the contents of the given bag.
+     *
+     * @param bag
+     * @return
+     */
+    default boolean involves(Bag bag) {
+        return getScopeBags().contains(bag);
+    }
 }
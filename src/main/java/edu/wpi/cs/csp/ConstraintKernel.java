@@ -0,0 +1,303 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents the constraints of a {@link Problem} lowered into flat primitive tables, so that the search
+ * can test them without dispatching through the {@link Constraint} objects:
+ * <ul>
+ * <li>every {@link UnaryConstraint} becomes a mask of the bags allowed for its item,</li>
+ * <li>{@link EqualityConstraint}s and {@link InequalityConstraint}s become lists of the other item for each item,</li>
+ * <li>{@link MutualInclusivityConstraint}s become tuples of the other item and the two bags for each item,</li>
+ * <li>and the bag limits become flags and minimums for each bag, next to the capacities and sizes of the bags.</li>
+ * </ul>
+ * The lists of each item are stored back to back in one array, with the start of each item's list in another, so
+ * testing an item walks a single run of memory. Any other kind of constraint is kept as is and tested through its
+ * {@link Constraint#test(Assignment)} method.
+ *
+ * @author Daniel Beckwith
+ */
+public final class ConstraintKernel {
+
+    private final int itemCount;
+    private final int words;
+    private final int[] capacities;
+    private final int[] maxItems;
+    private final long[] allowed;
+    private final int[] equalStarts;
+    private final int[] equalItems;
+    private final int[] unequalStarts;
+    private final int[] unequalItems;
+    private final int[] mutualStarts;
+    private final int[] mutualItems;
+    private final int[] mutualBags;
+    private final boolean[] capacityLimited;
+    private final boolean[] sizeLimited;
+    private final int[] minLoads;
+    private final int[] minSizes;
+    private final Constraint[][] otherItemConstraints;
+    private final Constraint[][] otherBagConstraints;
+    private final Constraint[] otherCompletionConstraints;
+
+    /**
+     * Creates a ConstraintKernel instance by lowering the constraints of the specified problem, whose items, bags and
+     * constraint lists have already been compiled.
+     *
+     * @param problem The {@link Problem} to lower.
+     */
+    ConstraintKernel(Problem problem) {
+        itemCount = problem.getItemCount();
+        int bagCount = problem.getBagCount();
+        words = Math.max(1, (bagCount + 63) >>> 6);
+        capacities = new int[bagCount];
+        maxItems = new int[bagCount];
+        for (int b = 0; b < bagCount; b++) {
+            capacities[b] = problem.getCapacity(b);
+            maxItems[b] = problem.getMaxItems(b);
+        }
+
+        // fold the unary constraints of each item into its mask, and sort its other constraints by kind
+        allowed = new long[itemCount * words];
+        List<List<Integer>> equal = new ArrayList<>(itemCount);
+        List<List<Integer>> unequal = new ArrayList<>(itemCount);
+        List<List<int[]>> mutual = new ArrayList<>(itemCount);
+        otherItemConstraints = new Constraint[itemCount][];
+        for (int i = 0; i < itemCount; i++) {
+            Item item = problem.getItem(i);
+            for (int b = 0; b < bagCount; b++) {
+                allowed[i * words + (b >>> 6)] |= 1L << b;
+            }
+            List<Integer> itemEqual = new ArrayList<>();
+            List<Integer> itemUnequal = new ArrayList<>();
+            List<int[]> itemMutual = new ArrayList<>();
+            List<Constraint> others = new ArrayList<>();
+            for (Constraint constraint : problem.getConstraints(item)) {
+                if (constraint instanceof UnaryConstraint) {
+                    UnaryConstraint unary = (UnaryConstraint) constraint;
+                    for (int b = 0; b < bagCount; b++) {
+                        if (!unary.isSatisfied(b)) {
+                            allowed[i * words + (b >>> 6)] &= ~(1L << b);
+                        }
+                    }
+                }
+                else if (constraint instanceof EqualityConstraint) {
+                    itemEqual.add(other(item, (BinaryConstraint) constraint));
+                }
+                else if (constraint instanceof InequalityConstraint) {
+                    itemUnequal.add(other(item, (BinaryConstraint) constraint));
+                }
+                else if (constraint instanceof MutualInclusivityConstraint) {
+                    // the constraint reads the same with its items swapped, so the tuple needs no direction
+                    MutualInclusivityConstraint inclusivity = (MutualInclusivityConstraint) constraint;
+                    itemMutual.add(new int[]{other(item, inclusivity), inclusivity.getBag1().getIndex(),
+                            inclusivity.getBag2().getIndex()});
+                }
+                else {
+                    others.add(constraint);
+                }
+            }
+            equal.add(itemEqual);
+            unequal.add(itemUnequal);
+            mutual.add(itemMutual);
+            otherItemConstraints[i] = others.toArray(new Constraint[others.size()]);
+        }
+        equalStarts = starts(equal);
+        equalItems = flatten(equal);
+        unequalStarts = starts(unequal);
+        unequalItems = flatten(unequal);
+        mutualStarts = starts(mutual);
+        mutualItems = new int[mutualStarts[itemCount]];
+        mutualBags = new int[2 * mutualStarts[itemCount]];
+        for (int i = 0, k = 0; i < itemCount; i++) {
+            for (int[] tuple : mutual.get(i)) {
+                mutualItems[k] = tuple[0];
+                mutualBags[2 * k] = tuple[1];
+                mutualBags[2 * k + 1] = tuple[2];
+                k++;
+            }
+        }
+
+        // turn the limits of each bag into flags and minimums
+        capacityLimited = new boolean[bagCount];
+        sizeLimited = new boolean[bagCount];
+        minLoads = new int[bagCount];
+        minSizes = new int[bagCount];
+        otherBagConstraints = new Constraint[bagCount][];
+        for (int b = 0; b < bagCount; b++) {
+            Bag bag = problem.getBag(b);
+            List<Constraint> others = new ArrayList<>();
+            for (Constraint constraint : problem.getConstraints(bag)) {
+                if (constraint instanceof MaxCapacityConstraint) {
+                    capacityLimited[b] = true;
+                }
+                else if (constraint instanceof MaxSizeConstraint) {
+                    sizeLimited[b] = true;
+                }
+                else if (constraint instanceof MinCapacityPercentageConstraint) {
+                    MinCapacityPercentageConstraint minCapacity = (MinCapacityPercentageConstraint) constraint;
+                    minLoads[b] = Math.max(minLoads[b],
+                            (int) Math.floor(minCapacity.getMinPercentage() * capacities[b]));
+                }
+                else if (constraint instanceof MinSizeConstraint) {
+                    minSizes[b] = Math.max(minSizes[b], ((MinSizeConstraint) constraint).getMinSize());
+                }
+                else {
+                    others.add(constraint);
+                }
+            }
+            otherBagConstraints[b] = others.toArray(new Constraint[others.size()]);
+        }
+
+        // the completion constraints that are not lowered above are tested as they are
+        List<Constraint> others = new ArrayList<>();
+        for (Constraint constraint : problem.getCompletionConstraints()) {
+            if (!(constraint instanceof MinCapacityPercentageConstraint) &&
+                    !(constraint instanceof MinSizeConstraint)) {
+                others.add(constraint);
+            }
+        }
+        otherCompletionConstraints = others.toArray(new Constraint[others.size()]);
+    }
+
+    /**
+     * Returns whether no constraint involving the given item or the contents of the given bag fails now that the item
+     * has been added to the bag, and, if that completes the assignment, whether every constraint waiting for a complete
+     * assignment holds.
+     *
+     * @param assignment The {@link Assignment}, with the item already in the bag.
+     * @param item       The index of the item.
+     * @param bag        The index of the bag.
+     * @return true if nothing failed, false otherwise
+     */
+    public boolean allows(Assignment assignment, int item, int bag) {
+        if (!allowsItem(assignment, item, bag) || !allowsBag(assignment, bag)) return false;
+        return !assignment.isComplete() || allowsCompletion(assignment);
+    }
+
+    /**
+     * Returns whether every constraint holds under the given complete assignment.
+     *
+     * @param assignment The complete {@link Assignment} to test.
+     * @return true if every constraint holds, false otherwise
+     */
+    public boolean isSatisfied(Assignment assignment) {
+        for (int i = 0; i < itemCount; i++) {
+            if (!allowsItem(assignment, i, assignment.getBag(i))) return false;
+        }
+        for (int b = 0; b < capacities.length; b++) {
+            if (!allowsBag(assignment, b)) return false;
+        }
+        return allowsCompletion(assignment);
+    }
+
+    /**
+     * Returns whether the item, in the given bag, is allowed by its unary constraints and by the binary constraints
+     * with every other item that has a bag.
+     *
+     * @param assignment The {@link Assignment}, with the item already in the bag.
+     * @param item       The index of the item.
+     * @param bag        The index of the bag.
+     * @return true if nothing failed, false otherwise
+     */
+    private boolean allowsItem(Assignment assignment, int item, int bag) {
+        if ((allowed[item * words + (bag >>> 6)] & (1L << bag)) == 0) return false;
+        for (int k = equalStarts[item]; k < equalStarts[item + 1]; k++) {
+            int other = assignment.getBag(equalItems[k]);
+            if (other != Assignment.UNASSIGNED && other != bag) return false;
+        }
+        for (int k = unequalStarts[item]; k < unequalStarts[item + 1]; k++) {
+            if (assignment.getBag(unequalItems[k]) == bag) return false;
+        }
+        for (int k = mutualStarts[item]; k < mutualStarts[item + 1]; k++) {
+            int other = assignment.getBag(mutualItems[k]);
+            if (other == Assignment.UNASSIGNED) continue;
+            int bag1 = mutualBags[2 * k];
+            int bag2 = mutualBags[2 * k + 1];
+            boolean inside = bag == bag1 || bag == bag2;
+            boolean otherInside = other == bag1 || other == bag2;
+            // both in the two bags but not the same one of them, or both outside them
+            if (inside != otherInside || inside && (bag == other) != (bag1 == bag2)) return false;
+        }
+        for (Constraint constraint : otherItemConstraints[item]) {
+            if (constraint.test(assignment) == Constraint.Result.FAILED) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the contents of the given bag are within its limits.
+     *
+     * @param assignment The {@link Assignment} to test.
+     * @param bag        The index of the bag.
+     * @return true if nothing failed, false otherwise
+     */
+    private boolean allowsBag(Assignment assignment, int bag) {
+        if (capacityLimited[bag] && assignment.getTotalWeight(bag) > capacities[bag]) return false;
+        if (sizeLimited[bag] && assignment.size(bag) > maxItems[bag]) return false;
+        for (Constraint constraint : otherBagConstraints[bag]) {
+            if (constraint.test(assignment) == Constraint.Result.FAILED) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether every bag reaches its minimum weight and size, and every other constraint waiting for a complete
+     * assignment holds.
+     *
+     * @param assignment The complete {@link Assignment} to test.
+     * @return true if nothing failed, false otherwise
+     */
+    private boolean allowsCompletion(Assignment assignment) {
+        for (int b = 0; b < minLoads.length; b++) {
+            if (assignment.getTotalWeight(b) < minLoads[b] || assignment.size(b) < minSizes[b]) return false;
+        }
+        for (Constraint constraint : otherCompletionConstraints) {
+            if (constraint.test(assignment) != Constraint.Result.PASSED) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the item of the given binary constraint that is not the given item.
+     *
+     * @param item       The {@link Item} on one side of the constraint.
+     * @param constraint The {@link BinaryConstraint}.
+     * @return an integer
+     */
+    private static int other(Item item, BinaryConstraint constraint) {
+        return (constraint.getItem1().equals(item) ? constraint.getItem2() : constraint.getItem1()).getIndex();
+    }
+
+    /**
+     * Returns where the list of each item starts when the given lists are stored back to back, followed by the total
+     * length.
+     *
+     * @param lists The list of each item.
+     * @return an int[] one longer than the number of items
+     */
+    private static int[] starts(List<? extends List<?>> lists) {
+        int[] starts = new int[lists.size() + 1];
+        for (int i = 0; i < lists.size(); i++) {
+            starts[i + 1] = starts[i] + lists.get(i).size();
+        }
+        return starts;
+    }
+
+    /**
+     * Stores the given lists back to back in one array.
+     *
+     * @param lists The list of each item.
+     * @return an int[]
+     */
+    private static int[] flatten(List<List<Integer>> lists) {
+        int[] flat = new int[starts(lists)[lists.size()]];
+        int k = 0;
+        for (List<Integer> list : lists) {
+            for (int value : list) {
+                flat[k++] = value;
+            }
+        }
+        return flat;
+    }
+}
@@ -0,0 +1,281 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class represents the solver that splits a CSP into its independent parts, as found by
+ * {@link CSP#splitIndependentParts()}, and searches each part on its own thread. The parts share no constraint and no
+ * bag, so the CSP is solved once every part is, and has no solution as soon as one part is proven to have none.
+ * <p>
+ * Within a part, the items that no chain of constraints links are only coupled through the capacity of the bags they
+ * share. Such a part is first solved one group of linked items at a time, heaviest group first, with each group handed
+ * the capacity and room the groups before it left in the bags. The minimum weight and size of the bags are only tested
+ * once every group is placed, and if that fails, or a group finds no place in what is left, the part is searched
+ * whole, so no solution is ever missed.
+ *
+ * @author Daniel Beckwith
+ */
+public class DecomposingSolver {
+
+    private final SolverOptions options;
+    private final int threads;
+
+    /**
+     * Creates a DecomposingSolver instance that searches the parts with one thread per available core.
+     *
+     * @param options The {@link SolverOptions} of the search of each part.
+     */
+    public DecomposingSolver(SolverOptions options) {
+        this(options, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a DecomposingSolver instance that searches at most the specified number of parts at once.
+     *
+     * @param options The {@link SolverOptions} of the search of each part.
+     * @param threads The maximum number of parts to search at once.
+     */
+    public DecomposingSolver(SolverOptions options, int threads) {
+        this.options = options;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns whether a solution was found to every independent part of the specified CSP. If so, the items of the CSP
+     * are added to the bags of the solutions of the parts. No solution is found if the search of a part runs out of its
+     * budget first. The time limit is for the whole solve: every search of a part is only given the time left until
+     * the deadline, and the searches of its groups only the first half of the time. The node limit is for each search.
+     *
+     * @param csp The {@link CSP} to solve.
+     * @return true if solved, false otherwise
+     * @throws InterruptedException if interrupted while waiting for the searches
+     */
+    public boolean solve(CSP csp) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = deadline(start, options.getTimeLimit());
+        long groupDeadline = deadline(start, options.getTimeLimit() / 2);
+        csp.compile();
+        if (!csp.enforceNodeConsistency().isEmpty()) return false;
+        List<CSP> parts = csp.splitIndependentParts();
+
+        AtomicBoolean cancellation = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, parts.size())));
+        try {
+            ExecutorCompletionService<CSP> completion = new ExecutorCompletionService<>(executor);
+            for (CSP part : parts) {
+                SolverOptions partOptions = new SolverOptions(options);
+                partOptions.setCancellation(cancellation);
+                completion.submit(() -> solvePart(part, partOptions, groupDeadline, deadline) ? part : null);
+            }
+
+            List<CSP> solved = new ArrayList<>(parts.size());
+            for (int finished = 0; finished < parts.size(); finished++) {
+                CSP result;
+                try {
+                    result = completion.take().get();
+                }
+                catch (ExecutionException e) {
+                    // a part that crashed says nothing about whether the CSP has a solution, so the crash is passed on
+                    cancellation.set(true);
+                    throw new IllegalStateException("Part failed", e.getCause());
+                }
+                if (result == null) {
+                    // one part without a solution leaves the whole CSP without one, so the others can stop
+                    cancellation.set(true);
+                    return false;
+                }
+                solved.add(result);
+            }
+            csp.copyAssignment(solved);
+            return true;
+        }
+        finally {
+            cancellation.set(true);
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns whether a solution was found to the specified part, first by placing its groups of linked items one at a
+     * time and otherwise by searching it whole. If so, its items are added to the bags of the solution.
+     *
+     * @param part          The {@link CSP} of the part to solve.
+     * @param options       The {@link SolverOptions} to solve with.
+     * @param groupDeadline The {@link System#nanoTime()} by which the groups have to be placed.
+     * @param deadline      The {@link System#nanoTime()} by which the part has to be solved.
+     * @return true if solved, false otherwise
+     */
+    private boolean solvePart(CSP part, SolverOptions options, long groupDeadline, long deadline) {
+        return solveGroups(part, options, groupDeadline) || new CSPSolver().solve(part, until(options, deadline));
+    }
+
+    /**
+     * Returns whether the specified part was solved by placing its groups of linked items one at a time, each in the
+     * capacity and room left by the groups before it. If so, its items are added to the bags of the solution.
+     *
+     * @param part     The {@link CSP} of the part to solve.
+     * @param options  The {@link SolverOptions} to solve with.
+     * @param deadline The {@link System#nanoTime()} by which the groups have to be placed.
+     * @return true if solved, false if the groups could not be placed one at a time
+     */
+    private boolean solveGroups(CSP part, SolverOptions options, long deadline) {
+        // the groups can only share out the limits of the bags, so any other constraint on the bags rules this out
+        List<Constraint> bagLimits = new ArrayList<>();
+        for (Constraint constraint : part.getConstraints()) {
+            if (!constraint.getScopeItems().isEmpty()) continue;
+            if (constraint instanceof MaxCapacityConstraint || constraint instanceof MaxSizeConstraint) {
+                bagLimits.add(constraint);
+            }
+            else if (!(constraint instanceof MinCapacityPercentageConstraint) &&
+                    !(constraint instanceof MinSizeConstraint)) {
+                return false;
+            }
+        }
+        part.compile();
+        List<List<Item>> groups = findGroups(part);
+        if (groups.size() < 2) return false;
+        groups.sort(Comparator.comparingInt(DecomposingSolver::getTotalWeight).reversed());
+
+        int bagCount = part.getBags().size();
+        int[] capacities = new int[bagCount];
+        int[] maxItems = new int[bagCount];
+        Map<String, Integer> bagIndices = new HashMap<>();
+        for (int b = 0; b < bagCount; b++) {
+            bagIndices.put(part.getBag(b).getName(), b);
+            capacities[b] = part.getBag(b).getCapacity();
+            maxItems[b] = part.getBag(b).getMaxItems();
+        }
+        CSPSolver solver = new CSPSolver();
+        List<CSP> solved = new ArrayList<>(groups.size());
+        for (List<Item> group : groups) {
+            CSP groupCSP = createGroup(part, group, bagLimits, capacities, maxItems);
+            if (!solver.solve(groupCSP, until(options, deadline))) return false;
+            solved.add(groupCSP);
+            // take what the group used out of what is left for the groups after it
+            Assignment assignment = groupCSP.getAssignment();
+            for (Item item : groupCSP.getItems()) {
+                // the group numbers its copies of the bags on its own, so they are matched up by name
+                int b = bagIndices.get(groupCSP.getBag(assignment.getBag(item.getIndex())).getName());
+                capacities[b] -= item.getWeight();
+                maxItems[b] -= item.getCount();
+            }
+        }
+        part.copyAssignment(solved);
+        return part.isValid();
+    }
+
+    /**
+     * Returns the groups of items of the specified compiled part that are linked by chains of constraints.
+     *
+     * @param part The compiled {@link CSP} of the part.
+     * @return a {@link List&lt;{@link List&lt;{@link Item}&gt;}&gt;}
+     */
+    private static List<List<Item>> findGroups(CSP part) {
+        int itemCount = part.getItems().size();
+        BitSet visited = new BitSet(itemCount);
+        List<List<Item>> groups = new ArrayList<>();
+        for (int i = visited.nextClearBit(0); i < itemCount; i = visited.nextClearBit(i + 1)) {
+            List<Item> group = new ArrayList<>();
+            visited.set(i);
+            group.add(part.getItem(i));
+            // the group doubles as the queue of the breadth-first walk over the neighbors
+            for (int k = 0; k < group.size(); k++) {
+                for (Item neighbor : part.getNeighbors(group.get(k))) {
+                    if (!visited.get(neighbor.getIndex())) {
+                        visited.set(neighbor.getIndex());
+                        group.add(neighbor);
+                    }
+                }
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Returns a CSP of the given group of items of the specified compiled part, with the constraints on those items,
+     * over copies of the bags of the part that only have the given capacity and room left. Only the maximum weight and
+     * size of the bags are kept, since their minimums are met by all the groups together.
+     *
+     * @param part       The compiled {@link CSP} of the part.
+     * @param group      The {@link Item}s of the group.
+     * @param bagLimits  The constraints of the part on the maximum weight and size of its bags.
+     * @param capacities The capacity left in each bag of the part.
+     * @param maxItems   The room left in each bag of the part.
+     * @return a {@link CSP}
+     */
+    private static CSP createGroup(CSP part, List<Item> group, List<Constraint> bagLimits, int[] capacities,
+                                   int[] maxItems) {
+        CSP groupCSP = new CSP();
+        Map<Item, Item> itemCopies = new HashMap<>();
+        Map<Bag, Bag> bagCopies = new HashMap<>();
+        for (Item item : group) {
+            Item copy = new Item(item.getName(), item.getWeight(), item.getCount());
+            itemCopies.put(item, copy);
+            groupCSP.getItems().add(copy);
+        }
+        for (int b = 0; b < capacities.length; b++) {
+            Bag bag = part.getBag(b);
+            Bag copy = new Bag(bag.getName(), maxItems[b], capacities[b]);
+            bagCopies.put(bag, copy);
+            groupCSP.getBags().add(copy);
+        }
+        // every constraint on an item of the group only involves items of the group, and is copied by the first of them
+        for (Item item : group) {
+            for (Constraint constraint : part.getConstraints(item)) {
+                if (constraint.getScopeItems().get(0).equals(item)) {
+                    groupCSP.getConstraints().add(constraint.copy(itemCopies, bagCopies));
+                }
+            }
+        }
+        bagLimits.forEach(constraint -> groupCSP.getConstraints().add(constraint.copy(itemCopies, bagCopies)));
+        return groupCSP;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} at which the given time limit runs out, or {@link Long#MAX_VALUE} if there
+     * is no limit.
+     *
+     * @param start     The {@link System#nanoTime()} at which the solve started.
+     * @param timeLimit The time limit in milliseconds.
+     * @return a long
+     */
+    private static long deadline(long start, long timeLimit) {
+        return timeLimit >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : start + timeLimit * 1000000;
+    }
+
+    /**
+     * Returns a copy of the given settings whose time limit is the time left until the given deadline, so that the
+     * searches run one after another share a single budget.
+     *
+     * @param options  The {@link SolverOptions} to copy.
+     * @param deadline The {@link System#nanoTime()} by which the search has to end.
+     * @return a {@link SolverOptions}
+     */
+    private static SolverOptions until(SolverOptions options, long deadline) {
+        if (deadline == Long.MAX_VALUE) return options;
+        SolverOptions limited = new SolverOptions(options);
+        limited.setTimeLimit(Math.max(0, (deadline - System.nanoTime()) / 1000000));
+        return limited;
+    }
+
+    /**
+     * Returns the total weight of the given items.
+     *
+     * @param items The {@link Item}s to weigh.
+     * @return an integer
+     */
+    private static int getTotalWeight(List<Item> items) {
+        return items.stream().mapToInt(Item::getWeight).sum();
+    }
+}
@@ -0,0 +1,287 @@
+package edu.wpi.cs.csp;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * This class represents the domains of all the items in a compiled {@link CSP}. Each domain is a bitset over the dense
+ * bag indices, stored as a run of 64-bit words in one flat array. Every change is recorded on a trail of overwritten
+ * words so that it can be undone back to an earlier mark. A listener can be told about every domain that changes,
+ * either way.
+ *
+ * @author Daniel Beckwith
+ */
+public class Domains {
+
+    private final int itemCount;
+    private final int bagCount;
+    private final int words;
+    private final long[] bits;
+    private int[] trailSlots;
+    private long[] trailWords;
+    private int trailSize;
+    private IntConsumer listener;
+
+    /**
+     * Creates a Domains instance where every item's domain contains every bag.
+     *
+     * @param itemCount The number of items.
+     * @param bagCount  The number of bags.
+     */
+    public Domains(int itemCount, int bagCount) {
+        this.itemCount = itemCount;
+        this.bagCount = bagCount;
+        words = Math.max(1, (bagCount + 63) >>> 6);
+        bits = new long[itemCount * words];
+        for (int item = 0; item < itemCount; item++) {
+            for (int w = 0; w < words; w++) {
+                bits[item * words + w] = fullWord(w);
+            }
+        }
+        trailSlots = new int[64];
+        trailWords = new long[64];
+        trailSize = 0;
+        listener = null;
+    }
+
+    /**
+     * Sets the listener called with the index of an item each time its domain changes or a change to it is undone.
+     *
+     * @param listener The {@link IntConsumer} to call, or null for none.
+     */
+    public void setListener(IntConsumer listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the number of items these domains are for.
+     *
+     * @return an integer
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Returns the number of bags these domains range over.
+     *
+     * @return an integer
+     */
+    public int getBagCount() {
+        return bagCount;
+    }
+
+    /**
+     * Returns the number of 64-bit words used for each domain.
+     *
+     * @return an integer
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * Returns whether the given bag is in the domain of the given item.
+     *
+     * @param item The index of the item.
+     * @param bag  The index of the bag.
+     * @return true if the bag is in the domain, false otherwise
+     */
+    public boolean contains(int item, int bag) {
+        return (bits[item * words + (bag >>> 6)] & (1L << bag)) != 0;
+    }
+
+    /**
+     * Returns the number of bags in the domain of the given item.
+     *
+     * @param item The index of the item.
+     * @return an integer
+     */
+    public int size(int item) {
+        int size = 0;
+        for (int w = item * words, end = w + words; w < end; w++) {
+            size += Long.bitCount(bits[w]);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of bags in both the domain of the given item and the given bag mask.
+     *
+     * @param item The index of the item.
+     * @param mask A bitset over the bag indices, {@link #getWords()} words long.
+     * @return an integer
+     */
+    public int countCommon(int item, long[] mask) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(bits[item * words + w] & mask[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the domain of the given item is empty.
+     *
+     * @param item The index of the item.
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty(int item) {
+        for (int w = item * words, end = w + words; w < end; w++) {
+            if (bits[w] != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first bag in the domain of the given item that is greater than or equal to the given bag
+     * index, or -1 if there is none. Iterate a domain with {@code for (b = next(i, 0); b >= 0; b = next(i, b + 1))}.
+     *
+     * @param item The index of the item.
+     * @param from The bag index to start searching from.
+     * @return an integer
+     */
+    public int next(int item, int from) {
+        if (from >= bagCount) return -1;
+        int w = from >>> 6;
+        long word = bits[item * words + w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == words) return -1;
+            word = bits[item * words + w];
+        }
+    }
+
+    /**
+     * Removes the given bag from the domain of the given item.
+     *
+     * @param item The index of the item.
+     * @param bag  The index of the bag.
+     * @return true if the bag was in the domain, false otherwise
+     */
+    public boolean remove(int item, int bag) {
+        int slot = item * words + (bag >>> 6);
+        long word = bits[slot];
+        long updated = word & ~(1L << bag);
+        if (updated == word) return false;
+        write(slot, updated);
+        return true;
+    }
+
+    /**
+     * Intersects the domain of the given item with the given bag mask, one word at a time.
+     *
+     * @param item The index of the item.
+     * @param mask A bitset over the bag indices, {@link #getWords()} words long.
+     * @return true if the domain changed, false otherwise
+     */
+    public boolean retain(int item, long[] mask) {
+        boolean changed = false;
+        for (int w = 0; w < words; w++) {
+            int slot = item * words + w;
+            long word = bits[slot];
+            long updated = word & mask[w];
+            if (updated != word) {
+                write(slot, updated);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Reduces the domain of the given item to the single given bag.
+     *
+     * @param item The index of the item.
+     * @param bag  The index of the bag.
+     * @return true if the domain changed, false otherwise
+     */
+    public boolean assign(int item, int bag) {
+        boolean changed = false;
+        for (int w = 0; w < words; w++) {
+            int slot = item * words + w;
+            long word = bits[slot];
+            long updated = w == (bag >>> 6) ? word & (1L << bag) : 0;
+            if (updated != word) {
+                write(slot, updated);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Copies the domain of the given item into the given bitset.
+     *
+     * @param item The index of the item.
+     * @param into A bitset at least {@link #getWords()} words long.
+     */
+    public void copy(int item, long[] into) {
+        System.arraycopy(bits, item * words, into, 0, words);
+    }
+
+    /**
+     * Returns a new bitset containing every bag.
+     *
+     * @return a long[]
+     */
+    public long[] fullMask() {
+        long[] mask = new long[words];
+        for (int w = 0; w < words; w++) {
+            mask[w] = fullWord(w);
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the current height of the trail, to be passed to {@link #undo(int)} later.
+     *
+     * @return an integer
+     */
+    public int mark() {
+        return trailSize;
+    }
+
+    /**
+     * Undoes every change made since the given trail height was returned by {@link #mark()}.
+     *
+     * @param mark The trail height to undo back to.
+     */
+    public void undo(int mark) {
+        // restore overwritten words in reverse order
+        while (trailSize > mark) {
+            trailSize--;
+            bits[trailSlots[trailSize]] = trailWords[trailSize];
+            if (listener != null) listener.accept(trailSlots[trailSize] / words);
+        }
+    }
+
+    /**
+     * Overwrites a domain word, saving its old value on the trail.
+     *
+     * @param slot    The index of the word in the flat array.
+     * @param updated The new value of the word.
+     */
+    private void write(int slot, long updated) {
+        if (trailSize == trailSlots.length) {
+            trailSlots = Arrays.copyOf(trailSlots, trailSize * 2);
+            trailWords = Arrays.copyOf(trailWords, trailSize * 2);
+        }
+        trailSlots[trailSize] = slot;
+        trailWords[trailSize] = bits[slot];
+        trailSize++;
+        bits[slot] = updated;
+        if (listener != null) listener.accept(slot / words);
+    }
+
+    /**
+     * Returns the word of a full domain at the given word index, with the bits past the last bag cleared.
+     *
+     * @param w The word index.
+     * @return a long
+     */
+    private long fullWord(int w) {
+        int remaining = bagCount - (w << 6);
+        return remaining >= 64 ? -1L : remaining <= 0 ? 0 : (1L << remaining) - 1;
+    }
+}
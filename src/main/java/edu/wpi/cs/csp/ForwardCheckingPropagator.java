@@ -0,0 +1,47 @@
+package edu.wpi.cs.csp;
+
+import java.util.function.IntConsumer;
+
+/**
+ * This class represents the propagator that removes every bag from the domain of each unassigned item that it could no
+ * longer be added to under the current partial assignment.
+ *
+ * @author Daniel Beckwith
+ */
+public class ForwardCheckingPropagator implements Propagator {
+
+    @Override
+    public boolean propagate(Item item, Bag bag, CSP csp) {
+        return forwardCheck(csp, changed -> {});
+    }
+
+    /**
+     * Performs forward checking by updating the domains of all unassigned items against the current assignment.
+     *
+     * @param csp     The {@link CSP} being searched.
+     * @param changed Called with the index of each item whose domain shrank.
+     * @return false if some item's domain was wiped out, true otherwise
+     */
+    protected boolean forwardCheck(CSP csp, IntConsumer changed) {
+        Domains domains = csp.getDomains();
+        Assignment assignment = csp.getAssignment();
+        for (int i = 0; i < domains.getItemCount(); i++) {
+            if (assignment.isAssigned(i)) continue;
+
+            // remove any bags in its domain that this item can no longer be added to
+            Item item = csp.getItem(i);
+            boolean shrank = false;
+            for (int b = domains.next(i, 0); b >= 0; b = domains.next(i, b + 1)) {
+                if (!csp.canAdd(csp.getBag(b), item)) {
+                    domains.remove(i, b);
+                    shrank = true;
+                }
+            }
+            if (shrank) {
+                changed.accept(i);
+                if (domains.isEmpty(i)) return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,107 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This class represents impact-based ordering. The impact of adding an item to a bag is the share of the search space,
+ * the product of the domain sizes of the unassigned items, that propagating it removes, with a wipeout removing all of
+ * it. The impacts seen for each item and bag are averaged over the search, and the item whose remaining bags leave the
+ * least of the search space in total is assigned first. A bag whose impact has not been seen yet counts as having none,
+ * so the ordering starts out as minimum remaining values.
+ *
+ * @author Daniel Beckwith
+ */
+public class ImpactOrdering extends VariableOrdering {
+
+    private double[][] impacts;
+    private int[][] counts;
+    private double[] keys;
+    private int[] knownSizes;
+    private boolean[] counted;
+    private double logSpace;
+    private double logSpaceBefore;
+
+    @Override
+    protected void setUp() {
+        int itemCount = domains.getItemCount();
+        impacts = new double[itemCount][];
+        counts = new int[itemCount][];
+        keys = new double[itemCount];
+        knownSizes = new int[itemCount];
+        counted = new boolean[itemCount];
+        logSpace = 0;
+        for (int i = 0; i < itemCount; i++) {
+            knownSizes[i] = domains.size(i);
+            if (!assignment.isAssigned(i)) {
+                counted[i] = true;
+                logSpace += log(knownSizes[i]);
+            }
+        }
+    }
+
+    @Override
+    public void assigned(Item item, Bag bag) {
+        super.assigned(item, bag);
+        int i = item.getIndex();
+        logSpaceBefore = logSpace;
+        logSpace -= log(knownSizes[i]);
+        counted[i] = false;
+    }
+
+    @Override
+    public void propagated(Item item, Bag bag, boolean consistent) {
+        int i = item.getIndex();
+        int b = bag.getIndex();
+        double impact = consistent ? Math.max(0, 1 - Math.exp(logSpace - logSpaceBefore)) : 1;
+        if (impacts[i] == null) {
+            impacts[i] = new double[domains.getBagCount()];
+            counts[i] = new int[domains.getBagCount()];
+        }
+        // running average of every impact seen
+        counts[i][b]++;
+        impacts[i][b] += (impact - impacts[i][b]) / counts[i][b];
+    }
+
+    @Override
+    public void unassigned(Item item, Bag bag) {
+        int i = item.getIndex();
+        knownSizes[i] = domains.size(i);
+        logSpace += log(knownSizes[i]);
+        counted[i] = true;
+        super.unassigned(item, bag);
+    }
+
+    @Override
+    protected void domainChanged(int item) {
+        int size = domains.size(item);
+        if (counted[item]) {
+            logSpace += log(size) - log(knownSizes[item]);
+        }
+        knownSizes[item] = size;
+        super.domainChanged(item);
+    }
+
+    @Override
+    protected void refresh(int item) {
+        // the search space left after trying each remaining bag
+        double key = 0;
+        for (int b = domains.next(item, 0); b >= 0; b = domains.next(item, b + 1)) {
+            key += 1 - (impacts[item] == null ? 0 : impacts[item][b]);
+        }
+        keys[item] = key;
+    }
+
+    @Override
+    protected int compareKeys(int item1, int item2) {
+        int result = Double.compare(keys[item1], keys[item2]);
+        return result != 0 ? result : Integer.compare(getSize(item1), getSize(item2));
+    }
+
+    /**
+     * Returns the natural logarithm of the given domain size, taking an empty domain as a single bag.
+     *
+     * @param size The size of a domain.
+     * @return a double
+     */
+    private static double log(int size) {
+        return Math.log(Math.max(1, size));
+    }
+}
@@ -1,5 +1,8 @@
 package edu.wpi.cs.csp;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -8,7 +11,7 @@ import java.util.stream.Stream;
  *
  * @author Daniel Beckwith
  */
-public class InclusionConstraint implements Constraint {
+public class InclusionConstraint implements UnaryConstraint {
 
     private final Item item;
     private final Bag[] bags;
@@ -43,10 +46,11 @@ public class InclusionConstraint implements Constraint {
     }
 
     @Override
-    public Result test(CSP csp) {
-        // if this constraint's item hasn't been assigned, ignore this constraint
-        if (!item.hasAssignment()) return Result.IGNORED;
-        return Stream.of(bags).anyMatch(bag -> bag.contains(item)) ? Result.PASSED : Result.FAILED;
+    public boolean isSatisfied(int bag) {
+        for (Bag included : bags) {
+            if (included.getIndex() == bag) return true;
+        }
+        return false;
     }
 
     @Override
@@ -54,6 +58,16 @@ public class InclusionConstraint implements Constraint {
         return this.item.equals(item);
     }
 
+    @Override
+    public Constraint copy(Map<Item, Item> items, Map<Bag, Bag> bags) {
+        return new InclusionConstraint(items.get(item), Stream.of(this.bags).map(bags::get).toArray(Bag[]::new));
+    }
+
+    @Override
+    public List<Item> getScopeItems() {
+        return Collections.singletonList(item);
+    }
+
     /**
      * Returns a string representation of this object.
      *
@@ -1,11 +1,15 @@
 package edu.wpi.cs.csp;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This class represents the constraint that checks if two items are not contained within the same bag.
  *
  * @author Daniel Beckwith
  */
-public class InequalityConstraint implements Constraint {
+public class InequalityConstraint implements BinaryConstraint {
 
     private final Item item1, item2;
 
@@ -39,10 +43,8 @@ public class InequalityConstraint implements Constraint {
     }
 
     @Override
-    public Result test(CSP csp) {
-        // if either of this constraint's items haven't been assigned, ignore this constraint
-        if (!item1.hasAssignment() || !item2.hasAssignment()) return Result.IGNORED;
-        return item1.getBag() != item2.getBag() ? Result.PASSED : Result.FAILED;
+    public boolean isSatisfied(int bag1, int bag2) {
+        return bag1 != bag2;
     }
 
     @Override
@@ -50,6 +52,16 @@ public class InequalityConstraint implements Constraint {
         return item1.equals(item) || item2.equals(item);
     }
 
+    @Override
+    public Constraint copy(Map<Item, Item> items, Map<Bag, Bag> bags) {
+        return new InequalityConstraint(items.get(item1), items.get(item2));
+    }
+
+    @Override
+    public List<Item> getScopeItems() {
+        return Arrays.asList(item1, item2);
+    }
+
     /**
      * Returns a string representation of this object.
      *
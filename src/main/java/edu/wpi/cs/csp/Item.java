@@ -9,29 +9,33 @@ public class Item {
 
     private final String name;
     private final int weight;
-    private Bag bag;
+    private final int count;
+    private int index;
 
     /**
-     * Creates an Item instance with the specified name and weight. Sets the containing bag to null.
+     * Creates an Item instance with the specified name and weight. Which bag the item is in is kept by an
+     * {@link Assignment}.
      *
      * @param name   The name of this item.
      * @param weight The weight of this item.
      */
     public Item(String name, int weight) {
-        this(name, weight, null);
+        this(name, weight, 1);
     }
 
     /**
-     * Creates an Item instance with the specified name, weight, and container bag.
+     * Creates an Item instance with the specified name and weight that stands for the specified number of items, all of
+     * which go in the same bag, such as the items merged by {@link CSP#mergeEqualItems()}.
      *
      * @param name   The name of this item.
-     * @param weight The weight of this item.
-     * @param bag    The {@link Bag} containing this item.
+     * @param weight The total weight of the items.
+     * @param count  The number of items, which is what this item counts as towards the size of its bag.
      */
-    public Item(String name, int weight, Bag bag) {
+    public Item(String name, int weight, int count) {
         this.name = name;
         this.weight = weight;
-        this.bag = bag;
+        this.count = count;
+        index = -1;
     }
 
     /**
@@ -53,30 +57,30 @@ public class Item {
     }
 
     /**
-     * Returns the bag containing this item.
+     * Returns the number of items this item stands for.
      *
-     * @return a {@link Bag}
+     * @return an integer
      */
-    public Bag getBag() {
-        return bag;
+    public int getCount() {
+        return count;
     }
 
     /**
-     * Sets the bag that is containing this item.
+     * Returns the dense index of this item within its compiled {@link CSP}, or -1 if it has not been compiled.
      *
-     * @param bag The {@link Bag} containing this item.
+     * @return an integer
      */
-    public void setBag(Bag bag) {
-        this.bag = bag;
+    public int getIndex() {
+        return index;
     }
 
     /**
-     * Returns true if this item has been assigned a bag.
+     * Sets the dense index of this item within its compiled {@link CSP}.
      *
-     * @return
+     * @param index The index of this item.
      */
-    public boolean hasAssignment() {
-        return bag != null;
+    public void setIndex(int index) {
+        this.index = index;
     }
 
     /**
@@ -85,7 +89,9 @@ public class Item {
      * @return an Item
      */
     public Item clone() {
-        return new Item(name, weight, bag);
+        Item clone = new Item(name, weight, count);
+        clone.index = index;
+        return clone;
     }
 
     @Override
@@ -114,7 +120,6 @@ public class Item {
         return "Item{" +
                 "name='" + name + '\'' +
                 ", weight=" + weight +
-                ", bag=" + (bag == null ? "<none>" : bag.getName()) +
                 '}';
     }
 }
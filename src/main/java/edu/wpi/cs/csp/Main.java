@@ -2,6 +2,8 @@ package edu.wpi.cs.csp;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -25,34 +27,230 @@ public class Main {
         // Get filename
         String filename = args[0];
 
+        // Get solver settings
+        SolverOptions options = createOptions(args);
+        if (options == null) {
+            usage();
+            return;
+        }
+        int portfolio = intArgument(args, "-portfolio");
+        int parallel = intArgument(args, "-parallel");
+        int decompose = intArgument(args, "-decompose");
+        boolean optimize = hasArgument(args, "-optimize");
+        boolean count = hasArgument(args, "-count");
+        boolean all = hasArgument(args, "-all");
+
         CSP csp;
         try {
-            csp = CSPReader.getInstance().read(new FileInputStream(filename));
+            csp = new CSPReader().read(new FileInputStream(filename));
         }
         catch (IOException e) {
             System.err.println("Error reading CSP info file: " + e);
             return;
         }
 
+        if (count) {
+            SolutionCount solutions = new CSPSolver().count(csp, options);
+            System.out.println("number of solutions: " + solutions.getSolutions());
+            System.out.println("number of classes of solutions: " + solutions.getClasses());
+            return;
+        }
+        if (all) {
+            long solutions = 0;
+            Iterator<Solution> iterator = new CSPSolver().iterateSolutions(csp, options);
+            while (iterator.hasNext()) {
+                iterator.next().apply();
+                printSolution(csp);
+                solutions++;
+            }
+            System.out.println("number of solutions: " + solutions);
+            return;
+        }
+
         // Get solution to CSP
-        if (CSPSolver.getInstance().solve(csp)) {
-            csp.getBags().forEach(bag -> {
-                System.out.println(bag.getName() + " " + bag.stream().map(Item::getName).collect(Collectors.joining(" ")));
-                System.out.println("number of items: " + bag.size());
-                System.out.println("total weight: " + bag.getTotalWeight() + "/" + bag.getCapacity());
-                System.out.println("wasted capacity: " + (bag.getCapacity() - bag.getTotalWeight()));
-                System.out.println();
-            });
+        CSPSolver.Outcome outcome;
+        boolean optimal = false;
+        try {
+            if (optimize) {
+                Optional<Solution> solution = new CSPSolver().optimize(csp, options);
+                solution.ifPresent(Solution::apply);
+                outcome = solution.isPresent() ? CSPSolver.Outcome.SOLVED : CSPSolver.Outcome.UNSOLVABLE;
+                optimal = solution.isPresent() && solution.get().isOptimal();
+            }
+            else if (portfolio > 0) {
+                outcome = new PortfolioSolver(PortfolioSolver.defaultStrategies(portfolio, options)).attempt(csp);
+            }
+            else if (parallel > 0) {
+                outcome = new ParallelSolver(options, parallel).attempt(csp);
+            }
+            else if (decompose > 0) {
+                boolean solved = new DecomposingSolver(options, decompose).solve(csp);
+                outcome = solved ? CSPSolver.Outcome.SOLVED : CSPSolver.Outcome.UNSOLVABLE;
+            }
+            else {
+                outcome = new CSPSolver().attempt(csp, options);
+            }
+        }
+        catch (InterruptedException e) {
+            System.err.println("Interrupted while solving: " + e);
+            return;
+        }
+        if (outcome == CSPSolver.Outcome.SOLVED) {
+            printSolution(csp);
+            if (optimize) {
+                System.out.println(options.getObjective() + ": " + options.getObjective().cost(csp.getAssignment()) +
+                        (optimal ? " (optimal)" : " (best found within budget)"));
+            }
+        }
+        else if (outcome == CSPSolver.Outcome.STOPPED) {
+            System.out.println("Search stopped before a solution was found");
         }
         else { // No solution found
             System.out.println("No solution found");
+            csp.getInfeasibleItems().forEach(item -> System.out.println(item.getName() + " fits in no bag"));
+        }
+    }
+
+    /**
+     * Prints the bags of the given solved CSP and the items in each.
+     *
+     * @param csp The solved {@link CSP}.
+     */
+    private static void printSolution(CSP csp) {
+        Assignment assignment = csp.getAssignment();
+        csp.getBags().forEach(bag -> {
+            int b = bag.getIndex();
+            System.out.println(bag.getName() + " " + assignment.getItems(b).stream().map(Item::getName).collect(Collectors.joining(" ")));
+            System.out.println("number of items: " + assignment.size(b));
+            System.out.println("total weight: " + assignment.getTotalWeight(b) + "/" + bag.getCapacity());
+            System.out.println("wasted capacity: " + (bag.getCapacity() - assignment.getTotalWeight(b)));
+            System.out.println();
+        });
+    }
+
+    /**
+     * Creates the solver settings given on the command line.
+     *
+     * @param args Command line arguments
+     * @return the {@link SolverOptions}, or null if an argument is not recognized
+     */
+    private static SolverOptions createOptions(String[] args) {
+        SolverOptions options = new SolverOptions();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-ac": // maintain arc consistency instead of only forward checking
+                    options.setPropagator(ArcConsistencyPropagator::new);
+                    break;
+                case "-nocap": // only check the bag limits one bag at a time
+                    options.setCapacityPropagation(false);
+                    break;
+                case "-nosym": // search subtrees that only differ by swapping interchangeable bags or identical items
+                    options.setSymmetryBreaking(false);
+                    break;
+                case "-nomerge": // branch on each item that an equality constraint ties to another on its own
+                    options.setEqualityMerging(false);
+                    break;
+                case "-order": // pick the next item by fewest remaining bags, dom/wdeg, activity or impact
+                    switch (args[++i]) {
+                        case "mrv":
+                            options.setVariableOrdering(MinDomainOrdering::new);
+                            break;
+                        case "wdeg":
+                            options.setVariableOrdering(WeightedDegreeOrdering::new);
+                            break;
+                        case "activity":
+                            options.setVariableOrdering(ActivityOrdering::new);
+                            break;
+                        case "impact":
+                            options.setVariableOrdering(ImpactOrdering::new);
+                            break;
+                        default:
+                            return null;
+                    }
+                    break;
+                case "-cbj": // jump back to the cause of each dead end and learn nogoods
+                    options.setBackjumping(true);
+                    break;
+                case "-restarts": // restart with random tie-breaking on a luby schedule
+                    options.setRestarts(true);
+                    break;
+                case "-seed": // seed of the random tie-breaking
+                    options.setSeed(Long.parseLong(args[++i]));
+                    break;
+                case "-optimize": // minimize the wasted capacity of the used bags, or the number of used bags
+                    switch (args[++i]) {
+                        case "waste":
+                            options.setObjective(Objective.WASTED_CAPACITY);
+                            break;
+                        case "bags":
+                            options.setObjective(Objective.BAGS_USED);
+                            break;
+                        default:
+                            return null;
+                    }
+                    break;
+                case "-time": // give up after this many milliseconds
+                    options.setTimeLimit(Long.parseLong(args[++i]));
+                    break;
+                case "-nodes": // give up after this many search nodes
+                    options.setNodeLimit(Long.parseLong(args[++i]));
+                    break;
+                case "-count": // count the solutions and the classes of solutions that only differ by swapping bags
+                case "-all": // print every solution
+                    break;
+                case "-progress": // report the progress of the search this often, in milliseconds
+                    options.setProgressInterval(Long.parseLong(args[++i]));
+                    options.setListener(new SolverListener() {
+                        @Override
+                        public void progress(Progress progress) {
+                            System.err.println(progress);
+                        }
+                    });
+                    break;
+                case "-portfolio": // race this many differently configured searches on separate threads
+                case "-parallel": // split the search tree across this many threads
+                case "-decompose": // search the independent parts of the CSP on this many threads
+                    i++;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Returns the number following the given flag on the command line, or 0 if the flag is not given.
+     *
+     * @param args Command line arguments
+     * @param flag The flag to look for.
+     * @return an integer
+     */
+    private static int intArgument(String[] args, String flag) {
+        for (int i = 1; i < args.length - 1; i++) {
+            if (args[i].equals(flag)) return Integer.parseInt(args[i + 1]);
+        }
+        return 0;
+    }
+
+    /**
+     * Returns whether the given flag is on the command line.
+     *
+     * @param args Command line arguments
+     * @param flag The flag to look for.
+     * @return true if given, false otherwise
+     */
+    private static boolean hasArgument(String[] args, String flag) {
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals(flag)) return true;
         }
+        return false;
     }
 
     /**
      * Prints program usage information to the console.
      */
     private static void usage() {
-        System.out.println("Usage: java -jar anivarthi-djbeckwith-csp.jar csp_info_file");
+        System.out.println("Usage: java -jar anivarthi-djbeckwith-csp.jar csp_info_file [-ac] [-nocap] [-nosym] [-nomerge] [-order mrv|wdeg|activity|impact] [-cbj] [-restarts] [-seed n] [-portfolio n] [-parallel n] [-decompose n] [-optimize waste|bags] [-time ms] [-nodes n] [-progress ms] [-count] [-all]");
     }
 }
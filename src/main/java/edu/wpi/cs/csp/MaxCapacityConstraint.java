@@ -1,11 +1,15 @@
 package edu.wpi.cs.csp;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This class represents the constraint that checks if a bag is over its total weight capacity.
  *
  * @author Aditya Nivarthi
  */
-public class MaxCapacityConstraint implements Constraint {
+public class MaxCapacityConstraint implements BagConstraint {
 
     private final Bag bag;
 
@@ -28,8 +32,13 @@ public class MaxCapacityConstraint implements Constraint {
     }
 
     @Override
-    public Result test(CSP csp) {
-        return bag.isOverCapacity() ? Result.FAILED : Result.PASSED;
+    public Result test(Assignment assignment) {
+        return assignment.getTotalWeight(bag.getIndex()) > bag.getCapacity() ? Result.FAILED : Result.PASSED;
+    }
+
+    @Override
+    public boolean isEquivalent(BagConstraint other) {
+        return other instanceof MaxCapacityConstraint;
     }
 
     @Override
@@ -37,6 +46,21 @@ public class MaxCapacityConstraint implements Constraint {
         return false;
     }
 
+    @Override
+    public Constraint copy(Map<Item, Item> items, Map<Bag, Bag> bags) {
+        return new MaxCapacityConstraint(bags.get(bag));
+    }
+
+    @Override
+    public List<Item> getScopeItems() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Bag> getScopeBags() {
+        return Collections.singletonList(bag);
+    }
+
     /**
      * Returns a string representation of this object.
      *
@@ -1,11 +1,15 @@
 package edu.wpi.cs.csp;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This class represents the constraint that checks if a bag has the minimum total weight capacity filled.
  *
  * @author Aditya Nivarthi
  */
-public class MinCapacityPercentageConstraint implements Constraint {
+public class MinCapacityPercentageConstraint implements BagConstraint {
 
     private final Bag bag;
     private final double minPercentage = 0.9;
@@ -38,10 +42,17 @@ public class MinCapacityPercentageConstraint implements Constraint {
     }
 
     @Override
-    public Result test(CSP csp) {
+    public Result test(Assignment assignment) {
         // if not all items in the CSP have been assigned, ignore this constraint
-        if (!csp.getItems().stream().allMatch(Item::hasAssignment)) return Result.IGNORED;
-        return bag.getTotalWeight() >= Math.floor(minPercentage * bag.getCapacity()) ? Result.PASSED : Result.FAILED;
+        if (!assignment.isComplete()) return Result.IGNORED;
+        return assignment.getTotalWeight(bag.getIndex()) >= Math.floor(minPercentage * bag.getCapacity()) ?
+                Result.PASSED : Result.FAILED;
+    }
+
+    @Override
+    public boolean isEquivalent(BagConstraint other) {
+        return other instanceof MinCapacityPercentageConstraint &&
+                ((MinCapacityPercentageConstraint) other).minPercentage == minPercentage;
     }
 
     @Override
@@ -49,6 +60,26 @@ public class MinCapacityPercentageConstraint implements Constraint {
         return false;
     }
 
+    @Override
+    public Constraint copy(Map<Item, Item> items, Map<Bag, Bag> bags) {
+        return new MinCapacityPercentageConstraint(bags.get(bag));
+    }
+
+    @Override
+    public List<Item> getScopeItems() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Bag> getScopeBags() {
+        return Collections.singletonList(bag);
+    }
+
+    @Override
+    public boolean requiresCompleteAssignment() {
+        return true;
+    }
+
     /**
      * Returns a string representation of this object.
      *
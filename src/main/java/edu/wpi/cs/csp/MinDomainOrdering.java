@@ -0,0 +1,75 @@
+package edu.wpi.cs.csp;
+
+import java.util.List;
+
+/**
+ * This class represents the minimum-remaining-values heuristic: the item with the fewest bags left in its domain is
+ * assigned first. Ties go to the item with the highest degree, the number of constraints it shares with unassigned
+ * items, and then, when restarts are on, to the item that has failed most often over all runs.
+ * <p>
+ * The degree of each item is kept up to date as its neighbors are assigned and unassigned.
+ *
+ * @author Daniel Beckwith
+ */
+public class MinDomainOrdering extends VariableOrdering {
+
+    private int[][] neighbors;
+    private int[][] shared;
+    private long[] degrees;
+
+    @Override
+    protected void setUp() {
+        int itemCount = domains.getItemCount();
+        neighbors = new int[itemCount][];
+        shared = new int[itemCount][];
+        degrees = new long[itemCount];
+
+        // count the constraints each item shares with each of its neighbors
+        for (int i = 0; i < itemCount; i++) {
+            Item item = csp.getItem(i);
+            List<Item> itemNeighbors = csp.getNeighbors(item);
+            neighbors[i] = new int[itemNeighbors.size()];
+            shared[i] = new int[itemNeighbors.size()];
+            for (int k = 0; k < itemNeighbors.size(); k++) {
+                Item neighbor = itemNeighbors.get(k);
+                neighbors[i][k] = neighbor.getIndex();
+                shared[i][k] = (int) csp.getConstraints(item).stream()
+                        .filter(constraint -> constraint.involves(neighbor))
+                        .count();
+                if (!assignment.isAssigned(neighbor.getIndex())) {
+                    degrees[i] += shared[i][k];
+                }
+            }
+        }
+    }
+
+    @Override
+    public void assigned(Item item, Bag bag) {
+        super.assigned(item, bag);
+        int i = item.getIndex();
+        for (int k = 0; k < neighbors[i].length; k++) {
+            degrees[neighbors[i][k]] -= shared[i][k];
+            update(neighbors[i][k]);
+        }
+    }
+
+    @Override
+    public void unassigned(Item item, Bag bag) {
+        int i = item.getIndex();
+        for (int k = 0; k < neighbors[i].length; k++) {
+            degrees[neighbors[i][k]] += shared[i][k];
+            update(neighbors[i][k]);
+        }
+        super.unassigned(item, bag);
+    }
+
+    @Override
+    protected int compareKeys(int item1, int item2) {
+        int result = Integer.compare(getSize(item1), getSize(item2)); // first compare by remaining values
+        if (result != 0) return result;
+        result = Long.compare(degrees[item2], degrees[item1]); // if RV is the same, go by max degree
+        if (result != 0 || !state.getOptions().isRestarts()) return result;
+        // then by most failures over all runs
+        return Long.compare(state.getActivity(csp.getItem(item2)), state.getActivity(csp.getItem(item1)));
+    }
+}
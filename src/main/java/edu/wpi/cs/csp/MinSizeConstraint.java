@@ -1,11 +1,15 @@
 package edu.wpi.cs.csp;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This class represents the constraint that checks if a bag has more items than its minimum required size.
  *
  * @author Aditya Nivarthi
  */
-public class MinSizeConstraint implements Constraint {
+public class MinSizeConstraint implements BagConstraint {
 
     private final Bag bag;
     private final int minSize;
@@ -39,10 +43,15 @@ public class MinSizeConstraint implements Constraint {
     }
 
     @Override
-    public Result test(CSP csp) {
+    public Result test(Assignment assignment) {
         // if not all items in the CSP have been assigned, ignore this constraint
-        if (!csp.getItems().stream().allMatch(Item::hasAssignment)) return Result.IGNORED;
-        return bag.size() >= minSize ? Result.PASSED : Result.FAILED;
+        if (!assignment.isComplete()) return Result.IGNORED;
+        return assignment.size(bag.getIndex()) >= minSize ? Result.PASSED : Result.FAILED;
+    }
+
+    @Override
+    public boolean isEquivalent(BagConstraint other) {
+        return other instanceof MinSizeConstraint && ((MinSizeConstraint) other).minSize == minSize;
     }
 
     @Override
@@ -50,6 +59,26 @@ public class MinSizeConstraint implements Constraint {
         return false;
     }
 
+    @Override
+    public Constraint copy(Map<Item, Item> items, Map<Bag, Bag> bags) {
+        return new MinSizeConstraint(bags.get(bag), minSize);
+    }
+
+    @Override
+    public List<Item> getScopeItems() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Bag> getScopeBags() {
+        return Collections.singletonList(bag);
+    }
+
+    @Override
+    public boolean requiresCompleteAssignment() {
+        return true;
+    }
+
     /**
      * Returns a string representation of this object.
      *
@@ -1,11 +1,15 @@
 package edu.wpi.cs.csp;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This class represents the constraint that checks if two items are in different bags within a pair of two bags, or if there are not in any of the two bags.
  *
  * @author Daniel Beckwith
  */
-public class MutualInclusivityConstraint implements Constraint {
+public class MutualInclusivityConstraint implements BinaryConstraint {
 
     private final Item item1, item2;
     private final Bag bag1, bag2;
@@ -62,15 +66,18 @@ public class MutualInclusivityConstraint implements Constraint {
     }
 
     @Override
-    public Result test(CSP csp) {
-        // if either of this constraint's items haven't been assigned, ignore this constraint
-        if (!item1.hasAssignment() || !item2.hasAssignment()) return Result.IGNORED;
-        return (item1.getBag() == bag1 && item2.getBag() == bag2) ||
-                (item1.getBag() == bag2 && item2.getBag() == bag1) ||
-                (item1.getBag() != bag1 && item1.getBag() != bag2 &&
-                        item2.getBag() != bag1 && item2.getBag() != bag2) ?
-                Result.PASSED :
-                Result.FAILED;
+    public boolean isSatisfied(int bag1, int bag2) {
+        int b1 = this.bag1.getIndex();
+        int b2 = this.bag2.getIndex();
+        return (bag1 == b1 && bag2 == b2) ||
+                (bag1 == b2 && bag2 == b1) ||
+                (bag1 != b1 && bag1 != b2 &&
+                        bag2 != b1 && bag2 != b2);
+    }
+
+    @Override
+    public List<Bag> getDistinguishedBags() {
+        return Arrays.asList(bag1, bag2);
     }
 
     @Override
@@ -78,6 +85,16 @@ public class MutualInclusivityConstraint implements Constraint {
         return item1.equals(item) || item2.equals(item);
     }
 
+    @Override
+    public Constraint copy(Map<Item, Item> items, Map<Bag, Bag> bags) {
+        return new MutualInclusivityConstraint(items.get(item1), items.get(item2), bags.get(bag1), bags.get(bag2));
+    }
+
+    @Override
+    public List<Item> getScopeItems() {
+        return Arrays.asList(item1, item2);
+    }
+
     /**
      * Returns a string representation of this object.
      *
@@ -0,0 +1,152 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a bounded store of learned nogoods, which are sets of assignments that cannot all be part of
+ * a solution. Each assignment is encoded as {@code itemIndex * bagCount + bagIndex}. When the store is full, the least
+ * recently used nogood is evicted.
+ * <p>
+ * Looking nogoods up does not allocate: the nogoods of each assignment are kept in a list indexed by the encoded
+ * assignment, which is handed out as is, and a nogood is marked as used through a reusable probe key.
+ *
+ * @author Daniel Beckwith
+ */
+public class NogoodStore {
+
+    private final int limit;
+    private final LinkedHashMap<Nogood, Nogood> nogoods;
+    private final List<List<int[]>> nogoodsByAssignment;
+    private final Nogood probe;
+
+    /**
+     * Creates a NogoodStore instance holding at most the specified number of nogoods.
+     *
+     * @param limit The maximum number of nogoods to keep.
+     */
+    public NogoodStore(int limit) {
+        this.limit = limit;
+        nogoods = new LinkedHashMap<Nogood, Nogood>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Nogood, Nogood> eldest) {
+                if (size() <= NogoodStore.this.limit) return false;
+                unindex(eldest.getKey());
+                return true;
+            }
+        };
+        nogoodsByAssignment = new ArrayList<>();
+        probe = new Nogood(new int[0]);
+    }
+
+    /**
+     * Returns the maximum number of nogoods kept.
+     *
+     * @return an integer
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of nogoods currently kept.
+     *
+     * @return an integer
+     */
+    public int size() {
+        return nogoods.size();
+    }
+
+    /**
+     * Learns the given nogood, unless it is empty or already known.
+     *
+     * @param assignments The encoded assignments that cannot all hold together.
+     */
+    public void add(int[] assignments) {
+        if (assignments.length == 0 || limit <= 0) return;
+        int[] sorted = assignments.clone();
+        Arrays.sort(sorted);
+        Nogood nogood = new Nogood(sorted);
+        if (nogoods.containsKey(nogood)) return;
+        for (int assignment : sorted) {
+            while (nogoodsByAssignment.size() <= assignment) {
+                nogoodsByAssignment.add(null);
+            }
+            if (nogoodsByAssignment.get(assignment) == null) {
+                nogoodsByAssignment.set(assignment, new ArrayList<>());
+            }
+            nogoodsByAssignment.get(assignment).add(sorted);
+        }
+        nogoods.put(nogood, nogood);
+    }
+
+    /**
+     * Returns the nogoods that contain the given encoded assignment. The list is the store's own, so it must not be
+     * modified, and it changes as nogoods are learned and evicted.
+     *
+     * @param assignment The encoded assignment.
+     * @return a {@link List&lt;int[]&gt;}
+     */
+    public List<int[]> get(int assignment) {
+        List<int[]> matches = assignment < nogoodsByAssignment.size() ? nogoodsByAssignment.get(assignment) : null;
+        return matches == null ? Collections.emptyList() : matches;
+    }
+
+    /**
+     * Marks the given nogood as recently used, so that it is evicted later.
+     *
+     * @param assignments The encoded assignments of a nogood returned by {@link #get(int)}.
+     */
+    public void touch(int[] assignments) {
+        probe.set(assignments);
+        nogoods.get(probe);
+    }
+
+    /**
+     * Removes an evicted nogood from the assignment index.
+     *
+     * @param nogood The evicted nogood.
+     */
+    private void unindex(Nogood nogood) {
+        for (int assignment : nogood.assignments) {
+            List<int[]> list = nogoodsByAssignment.get(assignment);
+            // the index holds the very array of the nogood, so this removes it by identity
+            list.remove(nogood.assignments);
+            if (list.isEmpty()) {
+                nogoodsByAssignment.set(assignment, null);
+            }
+        }
+    }
+
+    /**
+     * A single nogood, compared by its sorted encoded assignments.
+     */
+    private static final class Nogood {
+
+        private int[] assignments;
+        private int hash;
+
+        private Nogood(int[] assignments) {
+            set(assignments);
+        }
+
+        private void set(int[] assignments) {
+            this.assignments = assignments;
+            hash = Arrays.hashCode(assignments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Nogood && Arrays.equals(assignments, ((Nogood) o).assignments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This enum represents the costs that the {@link CSPSolver} can minimize with branch-and-bound. A bag is used once it
+ * holds at least one item, and an empty bag costs nothing under either objective. Each objective gives a lower bound
+ * on the cost of every completion of a partial assignment, so that subtrees which cannot beat the best solution found
+ * so far are pruned.
+ *
+ * @author Daniel Beckwith
+ */
+public enum Objective {
+
+    /**
+     * The total capacity of the used bags left unfilled.
+     */
+    WASTED_CAPACITY {
+        @Override
+        public long cost(Assignment assignment) {
+            Problem problem = assignment.getProblem();
+            long waste = 0;
+            for (int b = 0; b < problem.getBagCount(); b++) {
+                if (assignment.size(b) > 0) {
+                    waste += problem.getCapacity(b) - assignment.getTotalWeight(b);
+                }
+            }
+            return waste;
+        }
+
+        @Override
+        public long lowerBound(Assignment assignment) {
+            Problem problem = assignment.getProblem();
+            long weight = unassignedWeight(assignment);
+            long room = room(assignment);
+            // the used bags are wasted already, apart from the room the unassigned weight can fill
+            long waste = Math.max(0, room - weight);
+            if (weight > room || unassignedCount(assignment) > slots(assignment)) {
+                // some unused bag has to be opened, and all of its capacity that the overflowing weight leaves empty
+                // is wasted too
+                long smallest = Long.MAX_VALUE;
+                for (int b = 0; b < problem.getBagCount(); b++) {
+                    if (assignment.size(b) == 0 && problem.getMaxItems(b) > 0) {
+                        smallest = Math.min(smallest, problem.getCapacity(b));
+                    }
+                }
+                if (smallest == Long.MAX_VALUE) return Long.MAX_VALUE; // no bag left to open
+                waste += Math.max(0, smallest - Math.max(0, weight - room));
+            }
+            return waste;
+        }
+    },
+
+    /**
+     * The number of used bags.
+     */
+    BAGS_USED {
+        @Override
+        public long cost(Assignment assignment) {
+            Problem problem = assignment.getProblem();
+            long used = 0;
+            for (int b = 0; b < problem.getBagCount(); b++) {
+                if (assignment.size(b) > 0) used++;
+            }
+            return used;
+        }
+
+        @Override
+        public long lowerBound(Assignment assignment) {
+            Problem problem = assignment.getProblem();
+            // the items that do not fit in the used bags need new bags, none of which holds more than the largest
+            long largestCapacity = 0;
+            long largestMaxItems = 0;
+            for (int b = 0; b < problem.getBagCount(); b++) {
+                if (assignment.size(b) == 0) {
+                    largestCapacity = Math.max(largestCapacity, problem.getCapacity(b));
+                    largestMaxItems = Math.max(largestMaxItems, problem.getMaxItems(b));
+                }
+            }
+            long extraWeight = Math.max(0, unassignedWeight(assignment) - room(assignment));
+            long extraCount = Math.max(0, unassignedCount(assignment) - slots(assignment));
+            long opened = Math.max(
+                    largestCapacity > 0 ? (extraWeight + largestCapacity - 1) / largestCapacity : 0,
+                    largestMaxItems > 0 ? (extraCount + largestMaxItems - 1) / largestMaxItems : 0);
+            return cost(assignment) + Math.max(opened, extraWeight > 0 || extraCount > 0 ? 1 : 0);
+        }
+    };
+
+    /**
+     * Returns the cost of the given complete assignment.
+     *
+     * @param assignment The complete {@link Assignment}.
+     * @return a long
+     */
+    public abstract long cost(Assignment assignment);
+
+    /**
+     * Returns a bound that the cost of every completion of the given partial assignment is at least.
+     *
+     * @param assignment The partial {@link Assignment}.
+     * @return a long
+     */
+    public abstract long lowerBound(Assignment assignment);
+
+    /**
+     * Returns the total weight of the unassigned items of the given partial assignment.
+     *
+     * @param assignment The partial {@link Assignment}.
+     * @return a long
+     */
+    private static long unassignedWeight(Assignment assignment) {
+        Problem problem = assignment.getProblem();
+        long weight = problem.getTotalWeight();
+        for (int b = 0; b < problem.getBagCount(); b++) {
+            weight -= assignment.getTotalWeight(b);
+        }
+        return weight;
+    }
+
+    /**
+     * Returns the number of unassigned items of the given partial assignment.
+     *
+     * @param assignment The partial {@link Assignment}.
+     * @return a long
+     */
+    private static long unassignedCount(Assignment assignment) {
+        Problem problem = assignment.getProblem();
+        long count = problem.getTotalCount();
+        for (int b = 0; b < problem.getBagCount(); b++) {
+            count -= assignment.size(b);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the capacity left in the used bags of the given partial assignment.
+     *
+     * @param assignment The partial {@link Assignment}.
+     * @return a long
+     */
+    private static long room(Assignment assignment) {
+        Problem problem = assignment.getProblem();
+        long room = 0;
+        for (int b = 0; b < problem.getBagCount(); b++) {
+            if (assignment.size(b) > 0) {
+                room += Math.max(0, problem.getCapacity(b) - assignment.getTotalWeight(b));
+            }
+        }
+        return room;
+    }
+
+    /**
+     * Returns the number of items that still fit in the used bags of the given partial assignment.
+     *
+     * @param assignment The partial {@link Assignment}.
+     * @return a long
+     */
+    private static long slots(Assignment assignment) {
+        Problem problem = assignment.getProblem();
+        long slots = 0;
+        for (int b = 0; b < problem.getBagCount(); b++) {
+            if (assignment.size(b) > 0) {
+                slots += Math.max(0, problem.getMaxItems(b) - assignment.size(b));
+            }
+        }
+        return slots;
+    }
+}
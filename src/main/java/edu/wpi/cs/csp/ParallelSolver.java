@@ -0,0 +1,227 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class represents the solver that splits the search tree of a single CSP across cores with a
+ * {@link ForkJoinPool}. Each subtree near the root becomes a task that only holds the decisions leading to it. A
+ * worker thread runs a task on its own copy of the CSP by replaying those decisions, so tasks never share any bag or
+ * domain state, and a stolen task costs one replay of a short path. Thieves take the oldest queued tasks first, which
+ * are the largest open subtrees.
+ *
+ * @author Daniel Beckwith
+ */
+public class ParallelSolver {
+
+    private final CSPSolver solver;
+    private final SolverOptions options;
+    private final int parallelism;
+    private final int maxSplitDepth;
+
+    /**
+     * Creates a ParallelSolver instance with one worker per available core.
+     *
+     * @param options The {@link SolverOptions} each worker searches with.
+     */
+    public ParallelSolver(SolverOptions options) {
+        this(options, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a ParallelSolver instance with the specified number of workers.
+     *
+     * @param options     The {@link SolverOptions} each worker searches with.
+     * @param parallelism The number of worker threads.
+     */
+    public ParallelSolver(SolverOptions options, int parallelism) {
+        this(options, parallelism, 2 * (32 - Integer.numberOfLeadingZeros(parallelism)) + 2);
+    }
+
+    /**
+     * Creates a ParallelSolver instance with the specified number of workers that splits subtrees into tasks down to
+     * the specified depth.
+     *
+     * @param options       The {@link SolverOptions} each worker searches with.
+     * @param parallelism   The number of worker threads.
+     * @param maxSplitDepth The depth below which subtrees are always searched sequentially.
+     */
+    public ParallelSolver(SolverOptions options, int parallelism, int maxSplitDepth) {
+        solver = new CSPSolver();
+        this.options = options;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxSplitDepth = maxSplitDepth;
+    }
+
+    /**
+     * Returns whether a solution was found to the specified CSP. If so, the items of the CSP are added to the bags of
+     * the solution. Restarts are not used by the workers, since every subtree has to be searched exhaustively.
+     *
+     * @param csp The {@link CSP} to solve.
+     * @return true if solved, false otherwise
+     */
+    public boolean solve(CSP csp) {
+        return attempt(csp) == CSPSolver.Outcome.SOLVED;
+    }
+
+    /**
+     * Solves the specified CSP like {@link #solve(CSP)}, telling apart a search that proved there is no solution from
+     * one that was cancelled or ran out of its time or node budget first.
+     *
+     * @param csp The {@link CSP} to solve.
+     * @return a {@link CSPSolver.Outcome}
+     */
+    CSPSolver.Outcome attempt(CSP csp) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Search search = new Search(csp);
+            return pool.invoke(new SubtreeTask(search, new int[0], new int[0]));
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The state shared by all the tasks of one parallel solve.
+     */
+    private final class Search {
+
+        private final CSP csp;
+        private final AtomicBoolean cancellation;
+        private final ThreadLocal<Worker> workers;
+
+        private Search(CSP csp) {
+            this.csp = csp;
+            cancellation = new AtomicBoolean(false);
+            // every copy is made the same way from the same CSP, so their dense indices all agree
+            workers = ThreadLocal.withInitial(() -> new Worker(copy(), csp, cancellation));
+        }
+
+        private synchronized CSP copy() {
+            return solver.copy(csp, options);
+        }
+
+        /**
+         * Publishes the solution of the given worker, unless another worker got there first.
+         *
+         * @param worker The {@link Worker} whose copy is solved.
+         */
+        private void solved(Worker worker) {
+            if (cancellation.compareAndSet(false, true)) {
+                synchronized (csp) {
+                    csp.copyAssignment(worker.csp);
+                }
+            }
+        }
+    }
+
+    /**
+     * The copy of the CSP and search state owned by one worker thread.
+     */
+    private final class Worker {
+
+        private final CSP csp;
+        private final SearchState state;
+
+        private Worker(CSP csp, CSP origin, AtomicBoolean cancellation) {
+            this.csp = csp;
+            SolverOptions workerOptions = new SolverOptions(options);
+            workerOptions.setRestarts(false);
+            workerOptions.setCancellation(cancellation);
+            state = solver.prepare(csp, workerOptions);
+            if (state != null) {
+                state.setOrigin(origin);
+                state.startRun(Long.MAX_VALUE);
+            }
+        }
+    }
+
+    /**
+     * The task that searches the subtree below a path of decisions from the root. A subtree is only proven to have no
+     * solution if every subtree split off from it is.
+     */
+    private final class SubtreeTask extends RecursiveTask<CSPSolver.Outcome> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final int[] pathItems;
+        private final int[] pathBags;
+
+        private SubtreeTask(Search search, int[] pathItems, int[] pathBags) {
+            this.search = search;
+            this.pathItems = pathItems;
+            this.pathBags = pathBags;
+        }
+
+        @Override
+        protected CSPSolver.Outcome compute() {
+            if (search.cancellation.get()) return CSPSolver.Outcome.STOPPED;
+            Worker worker = search.workers.get();
+            if (worker.state == null) return CSPSolver.Outcome.UNSOLVABLE; // infeasible at the root
+            CSP csp = worker.csp;
+
+            // replay the decisions down to this subtree
+            int depth = 0;
+            boolean consistent = true;
+            while (consistent && depth < pathItems.length) {
+                consistent = solver.assign(csp.getItem(pathItems[depth]), csp.getBag(pathBags[depth]), csp, worker.state);
+                depth++;
+            }
+
+            List<SubtreeTask> children = new ArrayList<>();
+            boolean stopped = false;
+            if (consistent) {
+                if (depth < maxSplitDepth && getSurplusQueuedTaskCount() <= 2) {
+                    // split into one task per value of the next item, to be stolen by idle workers
+                    if (csp.isValid()) {
+                        worker.state.solved(csp.getAssignment());
+                        search.solved(worker);
+                        return CSPSolver.Outcome.SOLVED;
+                    }
+                    int item = worker.state.getVariableOrdering().peek();
+                    if (item >= 0) {
+                        int[] bags = new int[csp.getBags().size()];
+                        int count = solver.orderValues(csp.getItem(item), csp, worker.state, bags);
+                        for (int k = 0; k < count; k++) {
+                            if (!worker.state.getSymmetryBreaker().isCanonical(csp.getAssignment(), bags[k])) {
+                                continue;
+                            }
+                            int[] childItems = Arrays.copyOf(pathItems, depth + 1);
+                            int[] childBags = Arrays.copyOf(pathBags, depth + 1);
+                            childItems[depth] = item;
+                            childBags[depth] = bags[k];
+                            children.add(new SubtreeTask(search, childItems, childBags));
+                        }
+                    }
+                }
+                else {
+                    CSPSolver.Outcome outcome = solver.search(depth, csp, worker.state);
+                    if (outcome == CSPSolver.Outcome.SOLVED) {
+                        // the solution stays in this worker's copy, which no task touches once cancelled
+                        search.solved(worker);
+                        return outcome;
+                    }
+                    stopped = outcome == CSPSolver.Outcome.STOPPED;
+                }
+            }
+
+            // go back to the root before waiting on the children, since this thread may run other tasks meanwhile
+            for (int d = depth - 1; d >= 0; d--) {
+                solver.unassign(csp.getItem(pathItems[d]), csp.getBag(pathBags[d]), csp, worker.state);
+            }
+
+            for (SubtreeTask child : invokeAll(children)) {
+                CSPSolver.Outcome outcome = child.join();
+                if (outcome == CSPSolver.Outcome.SOLVED) return outcome;
+                stopped |= outcome == CSPSolver.Outcome.STOPPED;
+            }
+            return stopped ? CSPSolver.Outcome.STOPPED : CSPSolver.Outcome.UNSOLVABLE;
+        }
+    }
+}
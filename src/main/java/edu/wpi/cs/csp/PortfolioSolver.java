@@ -0,0 +1,170 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class represents the solver that runs several differently configured searches of the same CSP at once, each on
+ * its own copy of the CSP and its own thread. The first search to reach a conclusion wins and the rest are cancelled.
+ *
+ * @author Daniel Beckwith
+ */
+public class PortfolioSolver {
+
+    private final List<SolverOptions> strategies;
+    private final int threads;
+
+    /**
+     * Creates a PortfolioSolver instance that runs the specified strategies with one thread per available core.
+     *
+     * @param strategies The {@link SolverOptions} of each search.
+     */
+    public PortfolioSolver(List<SolverOptions> strategies) {
+        this(strategies, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a PortfolioSolver instance that runs the specified strategies on at most the specified number of threads.
+     *
+     * @param strategies The {@link SolverOptions} of each search.
+     * @param threads    The maximum number of searches to run at once.
+     */
+    public PortfolioSolver(List<SolverOptions> strategies, int threads) {
+        this.strategies = strategies;
+        this.threads = Math.max(1, Math.min(threads, strategies.size()));
+    }
+
+    /**
+     * Returns the specified number of strategies that differ in propagation, backjumping and restart seed, and past the
+     * first four in variable ordering.
+     *
+     * @param count The number of strategies.
+     * @return a {@link List&lt;{@link SolverOptions}&gt;}
+     */
+    public static List<SolverOptions> defaultStrategies(int count) {
+        return defaultStrategies(count, new SolverOptions());
+    }
+
+    /**
+     * Returns the specified number of strategies like {@link #defaultStrategies(int)}, each starting from the specified
+     * settings, such as the budget and the bag and symmetry reasoning, with only the settings it varies replaced.
+     *
+     * @param count The number of strategies.
+     * @param base  The {@link SolverOptions} every strategy starts from.
+     * @return a {@link List&lt;{@link SolverOptions}&gt;}
+     */
+    public static List<SolverOptions> defaultStrategies(int count, SolverOptions base) {
+        List<SolverOptions> strategies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SolverOptions options = new SolverOptions(base);
+            options.setPropagator(i % 2 == 0 ? ForwardCheckingPropagator::new : ArcConsistencyPropagator::new);
+            options.setBackjumping(i % 4 >= 2);
+            // the first pair of strategies search deterministically, the rest restart with their own seeds
+            if (i >= 2) {
+                options.setRestarts(true);
+                options.setSeed(i);
+            }
+            // past the first four, the strategies also vary the variable ordering
+            if (i >= 4) {
+                switch (i / 4 % 3) {
+                    case 1:
+                        options.setVariableOrdering(WeightedDegreeOrdering::new);
+                        break;
+                    case 2:
+                        options.setVariableOrdering(ActivityOrdering::new);
+                        break;
+                    default:
+                        options.setVariableOrdering(ImpactOrdering::new);
+                        break;
+                }
+            }
+            strategies.add(options);
+        }
+        return strategies;
+    }
+
+    /**
+     * Returns whether a solution was found to the specified CSP by any of the strategies. If so, the items of the CSP are
+     * added to the bags of the winning solution.
+     *
+     * @param csp The {@link CSP} to solve.
+     * @return true if solved, false otherwise
+     * @throws InterruptedException if interrupted while waiting for the searches
+     */
+    public boolean solve(CSP csp) throws InterruptedException {
+        return attempt(csp) == CSPSolver.Outcome.SOLVED;
+    }
+
+    /**
+     * Solves the specified CSP like {@link #solve(CSP)}, telling apart a strategy that proved there is no solution from
+     * every strategy being cancelled or running out of its time or node budget first.
+     *
+     * @param csp The {@link CSP} to solve.
+     * @return a {@link CSPSolver.Outcome}
+     * @throws InterruptedException if interrupted while waiting for the searches
+     */
+    CSPSolver.Outcome attempt(CSP csp) throws InterruptedException {
+        AtomicBoolean cancellation = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ExecutorCompletionService<Attempt> completion = new ExecutorCompletionService<>(executor);
+            List<Future<Attempt>> futures = new ArrayList<>();
+            CSPSolver solver = new CSPSolver();
+            for (SolverOptions strategy : strategies) {
+                // the strategies themselves are left untouched, so the same portfolio can run several solves at once
+                SolverOptions options = new SolverOptions(strategy);
+                options.setCancellation(cancellation);
+                CSP copy = solver.copy(csp, options);
+                futures.add(completion.submit(() -> new Attempt(copy, solver.attempt(copy, options))));
+            }
+
+            for (int finished = 0; finished < futures.size(); finished++) {
+                Attempt result;
+                try {
+                    result = completion.take().get();
+                }
+                catch (ExecutionException e) {
+                    // a strategy that crashed reached no conclusion either way, so the crash is passed on
+                    cancellation.set(true);
+                    throw new IllegalStateException("Strategy failed", e.getCause());
+                }
+                if (result.outcome == CSPSolver.Outcome.SOLVED) {
+                    cancellation.set(true);
+                    csp.copyAssignment(result.csp);
+                    return result.outcome;
+                }
+                if (result.outcome == CSPSolver.Outcome.UNSOLVABLE) {
+                    // a complete search proved there is no solution, so the others can stop
+                    cancellation.set(true);
+                    return result.outcome;
+                }
+                // a strategy that was stopped by its own budget has no conclusion, so the others carry on
+            }
+            return CSPSolver.Outcome.STOPPED;
+        }
+        finally {
+            cancellation.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The copy of the CSP a strategy searched and how its search ended.
+     */
+    private static final class Attempt {
+
+        private final CSP csp;
+        private final CSPSolver.Outcome outcome;
+
+        private Attempt(CSP csp, CSPSolver.Outcome outcome) {
+            this.csp = csp;
+            this.outcome = outcome;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class represents the compiled form of a {@link CSP}: its items and bags under dense indices, their weights and
+ * limits in flat arrays, and its constraints indexed by the items and bags they involve. A problem never changes once
+ * compiled, so it can be shared by any number of searches, each with its own {@link Assignment}. The constraints
+ * are also lowered into a {@link ConstraintKernel}, which is what the search tests them through.
+ * <p>
+ * Bags with the same capacity and maximum size that every constraint treats alike are interchangeable: swapping them
+ * in any solution gives another solution. Likewise, items with the same weight and count that are only constrained to
+ * the same bags by unary constraints are identical. Each bag and item is put in a class with the ones it is
+ * interchangeable with.
+ *
+ * @author Daniel Beckwith
+ */
+public final class Problem {
+
+    private final Item[] items;
+    private final Bag[] bags;
+    private final int[] weights;
+    private final int[] counts;
+    private final int[] capacities;
+    private final int[] maxItems;
+    private final long totalWeight;
+    private final long totalCount;
+    private final List<Constraint> constraints;
+    private final List<List<Constraint>> itemConstraints;
+    private final List<List<Constraint>> bagConstraints;
+    private final List<Constraint> completionConstraints;
+    private final List<List<Item>> neighbors;
+    private final int[] bagClasses;
+    private final int[] itemClasses;
+    private final ConstraintKernel kernel;
+
+    /**
+     * Creates a Problem instance from the specified items, bags and constraints, giving every {@link Item} and
+     * {@link Bag} its dense index.
+     *
+     * @param items       The {@link Item}s of the CSP.
+     * @param bags        The {@link Bag}s of the CSP.
+     * @param constraints The {@link Constraint}s of the CSP.
+     */
+    Problem(Collection<Item> items, Collection<Bag> bags, Collection<Constraint> constraints) {
+        this.items = items.toArray(new Item[items.size()]);
+        this.bags = bags.toArray(new Bag[bags.size()]);
+        weights = new int[this.items.length];
+        counts = new int[this.items.length];
+        capacities = new int[this.bags.length];
+        maxItems = new int[this.bags.length];
+        long totalWeight = 0;
+        long totalCount = 0;
+        for (int i = 0; i < this.items.length; i++) {
+            this.items[i].setIndex(i);
+            weights[i] = this.items[i].getWeight();
+            counts[i] = this.items[i].getCount();
+            totalWeight += weights[i];
+            totalCount += counts[i];
+        }
+        this.totalWeight = totalWeight;
+        this.totalCount = totalCount;
+        for (int b = 0; b < this.bags.length; b++) {
+            this.bags[b].setIndex(b);
+            capacities[b] = this.bags[b].getCapacity();
+            maxItems[b] = this.bags[b].getMaxItems();
+        }
+        this.constraints = Collections.unmodifiableList(new ArrayList<>(constraints));
+
+        // build the per-item and per-bag constraint lists and the neighbor lists of each item from the scope of each
+        // constraint
+        List<List<Constraint>> itemConstraints = new ArrayList<>(this.items.length);
+        List<List<Constraint>> bagConstraints = new ArrayList<>(this.bags.length);
+        List<Constraint> completionConstraints = new ArrayList<>();
+        List<Set<Item>> neighborSets = new ArrayList<>(this.items.length);
+        for (Item item : this.items) {
+            itemConstraints.add(new ArrayList<>());
+            neighborSets.add(new LinkedHashSet<>());
+        }
+        for (Bag bag : this.bags) {
+            bagConstraints.add(new ArrayList<>());
+        }
+
+        for (Constraint constraint : this.constraints) {
+            List<Item> scopeItems = constraint.getScopeItems();
+            scopeItems.forEach(item -> itemConstraints.get(item.getIndex()).add(constraint));
+            constraint.getScopeBags().forEach(bag -> bagConstraints.get(bag.getIndex()).add(constraint));
+            if (constraint.requiresCompleteAssignment()) {
+                completionConstraints.add(constraint);
+            }
+            // every pair of items in the same constraint are neighbors
+            for (Item item : scopeItems) {
+                for (Item item2 : scopeItems) {
+                    if (!item.equals(item2)) {
+                        neighborSets.get(item.getIndex()).add(item2);
+                    }
+                }
+            }
+        }
+
+        this.itemConstraints = new ArrayList<>(this.items.length);
+        this.bagConstraints = new ArrayList<>(this.bags.length);
+        neighbors = new ArrayList<>(this.items.length);
+        itemConstraints.forEach(list -> this.itemConstraints.add(Collections.unmodifiableList(list)));
+        bagConstraints.forEach(list -> this.bagConstraints.add(Collections.unmodifiableList(list)));
+        neighborSets.forEach(neighborSet -> neighbors.add(Collections.unmodifiableList(new ArrayList<>(neighborSet))));
+        this.completionConstraints = Collections.unmodifiableList(completionConstraints);
+        bagClasses = findBagClasses(bagConstraints);
+        itemClasses = findItemClasses(itemConstraints);
+        kernel = new ConstraintKernel(this);
+    }
+
+    /**
+     * Puts each item in a class with the items identical to it.
+     *
+     * @param itemConstraints The constraints involving each item.
+     * @return the index of the first item in the class of each item
+     */
+    private int[] findItemClasses(List<List<Constraint>> itemConstraints) {
+        int[] classes = new int[items.length];
+        Map<List<Object>, Integer> firstItems = new HashMap<>();
+        for (int i = 0; i < items.length; i++) {
+            classes[i] = i;
+
+            // an item is only interchangeable if its constraints just limit it to a set of bags
+            BitSet allowed = new BitSet(bags.length);
+            allowed.set(0, bags.length);
+            boolean unaryOnly = true;
+            for (Constraint constraint : itemConstraints.get(i)) {
+                if (!(constraint instanceof UnaryConstraint)) {
+                    unaryOnly = false;
+                    break;
+                }
+                for (int b = allowed.nextSetBit(0); b >= 0; b = allowed.nextSetBit(b + 1)) {
+                    if (!((UnaryConstraint) constraint).isSatisfied(b)) {
+                        allowed.clear(b);
+                    }
+                }
+            }
+            if (unaryOnly) {
+                List<Object> key = Arrays.asList(weights[i], counts[i], allowed);
+                Integer first = firstItems.putIfAbsent(key, i);
+                if (first != null) {
+                    classes[i] = first;
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Puts each bag in a class with the bags it is interchangeable with. Bags are only compared when every constraint
+     * is a {@link UnaryConstraint}, {@link BinaryConstraint} or {@link BagConstraint}, since no other constraint tells
+     * which bags it treats alike.
+     *
+     * @param bagConstraints The constraints depending on the contents of each bag.
+     * @return the index of the first bag in the class of each bag
+     */
+    private int[] findBagClasses(List<List<Constraint>> bagConstraints) {
+        int[] classes = new int[bags.length];
+        boolean[] distinguished = new boolean[bags.length];
+        List<UnaryConstraint> unaryConstraints = new ArrayList<>();
+        boolean comparable = true;
+        for (Constraint constraint : constraints) {
+            if (constraint instanceof UnaryConstraint) {
+                unaryConstraints.add((UnaryConstraint) constraint);
+            }
+            else if (constraint instanceof BinaryConstraint) {
+                ((BinaryConstraint) constraint).getDistinguishedBags()
+                        .forEach(bag -> distinguished[bag.getIndex()] = true);
+            }
+            else if (!(constraint instanceof BagConstraint)) {
+                comparable = false;
+            }
+        }
+
+        for (int b = 0; b < bags.length; b++) {
+            classes[b] = b;
+            if (!comparable || distinguished[b]) continue;
+            for (int b2 = 0; b2 < b; b2++) {
+                if (classes[b2] == b2 && !distinguished[b2] &&
+                        isInterchangeable(b2, b, unaryConstraints, bagConstraints)) {
+                    classes[b] = b2;
+                    break;
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Returns whether the two bags have the same limits and are treated alike by every unary constraint and by the
+     * constraints on their contents.
+     *
+     * @param bag1             The index of the first bag.
+     * @param bag2             The index of the second bag.
+     * @param unaryConstraints The unary constraints of the problem.
+     * @param bagConstraints   The constraints depending on the contents of each bag.
+     * @return true if interchangeable, false otherwise
+     */
+    private boolean isInterchangeable(int bag1, int bag2, List<UnaryConstraint> unaryConstraints,
+                                      List<List<Constraint>> bagConstraints) {
+        if (capacities[bag1] != capacities[bag2] || maxItems[bag1] != maxItems[bag2]) return false;
+        for (UnaryConstraint constraint : unaryConstraints) {
+            if (constraint.isSatisfied(bag1) != constraint.isSatisfied(bag2)) return false;
+        }
+
+        // every constraint on one bag needs an equivalent constraint on the other
+        List<Constraint> constraints1 = bagConstraints.get(bag1);
+        List<Constraint> constraints2 = bagConstraints.get(bag2);
+        if (constraints1.size() != constraints2.size()) return false;
+        boolean[] matched = new boolean[constraints2.size()];
+        for (Constraint constraint1 : constraints1) {
+            if (!(constraint1 instanceof BagConstraint)) return false;
+            boolean found = false;
+            for (int c = 0; c < constraints2.size() && !found; c++) {
+                Constraint constraint2 = constraints2.get(c);
+                if (!matched[c] && constraint2 instanceof BagConstraint &&
+                        ((BagConstraint) constraint1).isEquivalent((BagConstraint) constraint2)) {
+                    matched[c] = true;
+                    found = true;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of items.
+     *
+     * @return an integer
+     */
+    public int getItemCount() {
+        return items.length;
+    }
+
+    /**
+     * Returns the number of bags.
+     *
+     * @return an integer
+     */
+    public int getBagCount() {
+        return bags.length;
+    }
+
+    /**
+     * Returns the item with the specified dense index.
+     *
+     * @param index The index of the {@link Item}.
+     * @return an {@link Item}
+     */
+    public Item getItem(int index) {
+        return items[index];
+    }
+
+    /**
+     * Returns the bag with the specified dense index.
+     *
+     * @param index The index of the {@link Bag}.
+     * @return a {@link Bag}
+     */
+    public Bag getBag(int index) {
+        return bags[index];
+    }
+
+    /**
+     * Returns the weight of the item with the specified dense index.
+     *
+     * @param item The index of the item.
+     * @return an integer
+     */
+    public int getWeight(int item) {
+        return weights[item];
+    }
+
+    /**
+     * Returns the number of items the item with the specified dense index stands for, which is 1 unless it was merged
+     * from several items.
+     *
+     * @param item The index of the item.
+     * @return an integer
+     */
+    public int getCount(int item) {
+        return counts[item];
+    }
+
+    /**
+     * Returns the total weight of all the items.
+     *
+     * @return a long
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Returns the total number of items that all the items stand for, counting each merged item as the items it was
+     * merged from.
+     *
+     * @return a long
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the total weight capacity of the bag with the specified dense index.
+     *
+     * @param bag The index of the bag.
+     * @return an integer
+     */
+    public int getCapacity(int bag) {
+        return capacities[bag];
+    }
+
+    /**
+     * Returns the maximum size of the bag with the specified dense index.
+     *
+     * @param bag The index of the bag.
+     * @return an integer
+     */
+    public int getMaxItems(int bag) {
+        return maxItems[bag];
+    }
+
+    /**
+     * Returns every constraint of the problem.
+     *
+     * @return a {@link List&lt;{@link Constraint}&gt;}
+     */
+    public List<Constraint> getConstraints() {
+        return constraints;
+    }
+
+    /**
+     * Returns the constraints that involve the given item.
+     *
+     * @param item The {@link Item} to get the constraints of.
+     * @return a {@link List&lt;{@link Constraint}&gt;}
+     */
+    public List<Constraint> getConstraints(Item item) {
+        return itemConstraints.get(item.getIndex());
+    }
+
+    /**
+     * Returns the constraints that depend on the contents of the given bag.
+     *
+     * @param bag The {@link Bag} to get the constraints of.
+     * @return a {@link List&lt;{@link Constraint}&gt;}
+     */
+    public List<Constraint> getConstraints(Bag bag) {
+        return bagConstraints.get(bag.getIndex());
+    }
+
+    /**
+     * Returns the constraints of the problem lowered into flat tables for the search to test.
+     *
+     * @return a {@link ConstraintKernel}
+     */
+    public ConstraintKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Returns the constraints that are ignored until every item has been assigned.
+     *
+     * @return a {@link List&lt;{@link Constraint}&gt;}
+     */
+    public List<Constraint> getCompletionConstraints() {
+        return completionConstraints;
+    }
+
+    /**
+     * Returns the index of the first bag that the bag with the specified dense index is interchangeable with, which is
+     * the bag itself if no bag before it is.
+     *
+     * @param bag The index of the bag.
+     * @return an integer
+     */
+    public int getBagClass(int bag) {
+        return bagClasses[bag];
+    }
+
+    /**
+     * Returns the index of the first item that the item with the specified dense index is identical to, which is the
+     * item itself if no item before it is.
+     *
+     * @param item The index of the item.
+     * @return an integer
+     */
+    public int getItemClass(int item) {
+        return itemClasses[item];
+    }
+
+    /**
+     * Returns the items that share at least one constraint with the given item.
+     *
+     * @param item The {@link Item} to get the neighbors of.
+     * @return a {@link List&lt;{@link Item}&gt;}
+     */
+    public List<Item> getNeighbors(Item item) {
+        return neighbors.get(item.getIndex());
+    }
+}
@@ -0,0 +1,93 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This class represents a snapshot of a running solve, as reported to a {@link SolverListener}.
+ *
+ * @author Daniel Beckwith
+ */
+public class Progress {
+
+    private final long nodes;
+    private final long elapsedMillis;
+    private final int runs;
+    private final int solutions;
+    private final long bestCost;
+
+    /**
+     * Creates a Progress instance with the specified counts.
+     *
+     * @param nodes         The number of search nodes entered so far.
+     * @param elapsedMillis The number of milliseconds since the search started.
+     * @param runs          The number of runs started so far.
+     * @param solutions     The number of solutions found so far.
+     * @param bestCost      The cost of the best solution found so far.
+     */
+    public Progress(long nodes, long elapsedMillis, int runs, int solutions, long bestCost) {
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+        this.runs = runs;
+        this.solutions = solutions;
+        this.bestCost = bestCost;
+    }
+
+    /**
+     * Returns the number of search nodes entered so far, over all runs.
+     *
+     * @return a long
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of milliseconds since the search started.
+     *
+     * @return a long
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the number of runs started so far.
+     *
+     * @return an integer
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Returns the number of solutions found so far. When optimizing, only the ones that improved on the last count.
+     *
+     * @return an integer
+     */
+    public int getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Returns the cost of the best solution found so far when optimizing, or {@link Long#MAX_VALUE} if there is none.
+     *
+     * @return a long
+     */
+    public long getBestCost() {
+        return bestCost;
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return a {@link String}
+     */
+    @Override
+    public String toString() {
+        return "Progress{" +
+                "nodes=" + nodes +
+                ", elapsedMillis=" + elapsedMillis +
+                ", runs=" + runs +
+                ", solutions=" + solutions +
+                ", bestCost=" + (bestCost == Long.MAX_VALUE ? "<none>" : bestCost) +
+                '}';
+    }
+}
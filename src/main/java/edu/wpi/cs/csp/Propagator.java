@@ -0,0 +1,31 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This interface defines the common functionality between the constraint propagation engines run by the
+ * {@link CSPSolver} after each assignment.
+ *
+ * @author Daniel Beckwith
+ */
+public interface Propagator {
+
+    /**
+     * Prepares this propagator for a search over the given compiled CSP and propagates the initial domains.
+     *
+     * @param csp The {@link CSP} about to be searched.
+     * @return false if some item's domain was wiped out, true otherwise
+     */
+    default boolean initialize(CSP csp) {
+        return true;
+    }
+
+    /**
+     * Prunes the domains of the CSP after the given item has been added to the given bag. All domain changes must go
+     * through {@link CSP#getDomains()} so that they are undone on backtracking.
+     *
+     * @param item The {@link Item} that was just assigned.
+     * @param bag  The {@link Bag} it was added to.
+     * @param csp  The {@link CSP} being searched.
+     * @return false if some item's domain was wiped out, true otherwise
+     */
+    boolean propagate(Item item, Bag bag, CSP csp);
+}
@@ -0,0 +1,366 @@
+package edu.wpi.cs.csp;
+
+import java.util.Random;
+
+/**
+ * This class represents the state of a single solve that lives outside the {@link CSP} itself: the propagation,
+ * backjumping, symmetry breaking, variable ordering and value ordering machinery, the restart bookkeeping, the random
+ * tie-breaking priorities of the current run, the time and node budget, the best solution found so far when optimizing,
+ * and the reporting of solutions and progress to the {@link SolverListener}.
+ *
+ * @author Daniel Beckwith
+ */
+public class SearchState {
+
+    private final CSP csp;
+    private final SolverOptions options;
+    private final Propagator propagator;
+    private final Backjumper backjumper;
+    private SymmetryBreaker symmetryBreaker;
+    private final VariableOrdering variableOrdering;
+    private final ValueOrdering valueOrdering;
+    private final ChoicePoint[] choicePoints;
+    private final Random random;
+    private final int[] itemPriorities;
+    private final int[] bagPriorities;
+    private final long[] activity;
+    private final long start;
+    private final long deadline;
+    private CSP origin;
+    private long nextProgress;
+    private int solutions;
+    private long failures;
+    private long failureLimit;
+    private int runs;
+    private long nodes;
+    private Objective objective;
+    private Assignment best;
+    private long bestCost;
+
+    /**
+     * Creates a SearchState instance for the specified compiled CSP, whose domains have already been initialized by
+     * the specified propagator.
+     *
+     * @param csp        The {@link CSP} being solved.
+     * @param options    The {@link SolverOptions} it is being solved with.
+     * @param propagator The {@link Propagator} to run after each assignment.
+     */
+    public SearchState(CSP csp, SolverOptions options, Propagator propagator) {
+        this.csp = csp;
+        this.options = options;
+        this.propagator = propagator;
+        backjumper = new Backjumper(csp, options.isBackjumping(), new NogoodStore(options.getNogoodLimit()));
+        symmetryBreaker = new SymmetryBreaker(csp.getProblem(), options.isSymmetryBreaking());
+        variableOrdering = options.getVariableOrdering().get();
+        valueOrdering = new ValueOrdering(csp);
+        choicePoints = new ChoicePoint[csp.getItems().size() + 1];
+        random = new Random(options.getSeed());
+        itemPriorities = new int[csp.getItems().size()];
+        bagPriorities = new int[csp.getBags().size()];
+        activity = new long[csp.getItems().size()];
+        failures = 0;
+        failureLimit = Long.MAX_VALUE;
+        runs = 0;
+        start = System.nanoTime();
+        long timeLimit = options.getTimeLimit();
+        deadline = timeLimit >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : start + timeLimit * 1000000;
+        origin = csp;
+        nextProgress = start + options.getProgressInterval() * 1000000;
+        solutions = 0;
+        nodes = 0;
+        objective = null;
+        best = null;
+        bestCost = Long.MAX_VALUE;
+        variableOrdering.initialize(csp, this);
+    }
+
+    /**
+     * Returns the settings of this solve.
+     *
+     * @return a {@link SolverOptions}
+     */
+    public SolverOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Returns the propagation engine run after each assignment.
+     *
+     * @return a {@link Propagator}
+     */
+    public Propagator getPropagator() {
+        return propagator;
+    }
+
+    /**
+     * Returns the bookkeeping for conflict-directed backjumping.
+     *
+     * @return a {@link Backjumper}
+     */
+    public Backjumper getBackjumper() {
+        return backjumper;
+    }
+
+    /**
+     * Returns the symmetry breaking for interchangeable bags and identical items.
+     *
+     * @return a {@link SymmetryBreaker}
+     */
+    public SymmetryBreaker getSymmetryBreaker() {
+        return symmetryBreaker;
+    }
+
+    /**
+     * Replaces the symmetry breaking of this solve, which is otherwise set up by its settings. Must be called before
+     * the search starts.
+     *
+     * @param symmetryBreaker The {@link SymmetryBreaker} to search with.
+     */
+    public void setSymmetryBreaker(SymmetryBreaker symmetryBreaker) {
+        this.symmetryBreaker = symmetryBreaker;
+    }
+
+    /**
+     * Returns the heuristic that picks the next item to assign.
+     *
+     * @return a {@link VariableOrdering}
+     */
+    public VariableOrdering getVariableOrdering() {
+        return variableOrdering;
+    }
+
+    /**
+     * Returns the least-constraining-value scores of this solve.
+     *
+     * @return a {@link ValueOrdering}
+     */
+    public ValueOrdering getValueOrdering() {
+        return valueOrdering;
+    }
+
+    /**
+     * Returns the choice point of the given level of the search stack, which is created the first time the search
+     * reaches that depth and reused from then on.
+     *
+     * @param depth The number of items assigned above the level.
+     * @return a {@link ChoicePoint}
+     */
+    ChoicePoint getChoicePoint(int depth) {
+        if (choicePoints[depth] == null) {
+            choicePoints[depth] = new ChoicePoint(csp.getBags().size());
+        }
+        return choicePoints[depth];
+    }
+
+    /**
+     * Starts a new run of the search that gives up after the specified number of failures. When restarts are on, ties
+     * in the variable and value ordering are broken by fresh random priorities drawn from the seeded generator.
+     *
+     * @param failureLimit The maximum number of failures in this run.
+     */
+    public void startRun(long failureLimit) {
+        this.failureLimit = failureLimit;
+        failures = 0;
+        runs++;
+        if (options.isRestarts()) {
+            for (int i = 0; i < itemPriorities.length; i++) {
+                itemPriorities[i] = random.nextInt();
+            }
+            for (int b = 0; b < bagPriorities.length; b++) {
+                bagPriorities[b] = random.nextInt();
+            }
+        }
+        variableOrdering.restart();
+    }
+
+    /**
+     * Returns the number of runs started so far.
+     *
+     * @return an integer
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Returns whether this solve has been cancelled through its {@link SolverOptions#getCancellation()} flag.
+     *
+     * @return true if cancelled, false otherwise
+     */
+    public boolean isCancelled() {
+        return options.getCancellation().get();
+    }
+
+    /**
+     * Counts a new node of the search tree.
+     *
+     * @return false if this solve has been cancelled or has run out of its time or node budget, true otherwise
+     */
+    public boolean enterNode() {
+        nodes++;
+        SolverListener listener = options.getListener();
+        if (listener != null) {
+            long now = System.nanoTime();
+            if (now - nextProgress >= 0) {
+                nextProgress = now + options.getProgressInterval() * 1000000;
+                listener.progress(getProgress());
+            }
+        }
+        return !isStopped();
+    }
+
+    /**
+     * Returns a snapshot of this solve so far.
+     *
+     * @return a {@link Progress}
+     */
+    public Progress getProgress() {
+        return new Progress(nodes, (System.nanoTime() - start) / 1000000, runs, solutions, bestCost);
+    }
+
+    /**
+     * Sets the CSP that the solutions given to the listener are for, when the one being searched is a copy of it.
+     *
+     * @param origin The {@link CSP} the searched one was copied from.
+     */
+    public void setOrigin(CSP origin) {
+        this.origin = origin;
+    }
+
+    /**
+     * Records that the given complete assignment satisfies every constraint, telling the listener about it.
+     *
+     * @param assignment The complete {@link Assignment}.
+     */
+    public void solved(Assignment assignment) {
+        solutions++;
+        SolverListener listener = options.getListener();
+        if (listener != null) {
+            listener.solutionFound(new Solution(origin, csp, assignment, false));
+        }
+    }
+
+    /**
+     * Returns whether this solve has been cancelled or has run out of its time or node budget.
+     *
+     * @return true if stopped, false otherwise
+     */
+    public boolean isStopped() {
+        return isCancelled() || nodes > options.getNodeLimit() ||
+                (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+    }
+
+    /**
+     * Returns the number of search nodes entered so far, over all runs.
+     *
+     * @return a long
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Makes this solve minimize the given cost, so that every solution found only tightens the bound instead of
+     * ending the search.
+     *
+     * @param objective The {@link Objective} to minimize.
+     */
+    public void setObjective(Objective objective) {
+        this.objective = objective;
+    }
+
+    /**
+     * Returns whether this solve is minimizing a cost.
+     *
+     * @return true if optimizing, false otherwise
+     */
+    public boolean isOptimizing() {
+        return objective != null;
+    }
+
+    /**
+     * Returns whether some completion of the given partial assignment could still cost less than the best solution
+     * found so far.
+     *
+     * @param assignment The partial {@link Assignment}.
+     * @return true if the subtree below it has to be searched, false if it can be pruned
+     */
+    public boolean canImprove(Assignment assignment) {
+        return best == null || objective.lowerBound(assignment) < bestCost;
+    }
+
+    /**
+     * Keeps a copy of the given complete assignment if it costs less than the best solution found so far.
+     *
+     * @param assignment The complete {@link Assignment}.
+     * @return true if it is the new best solution, false otherwise
+     */
+    public boolean improve(Assignment assignment) {
+        long cost = objective.cost(assignment);
+        if (best != null && cost >= bestCost) return false;
+        best = new Assignment(assignment);
+        bestCost = cost;
+        solved(best);
+        return true;
+    }
+
+    /**
+     * Returns the best solution found so far, or null if there is none.
+     *
+     * @return an {@link Assignment}
+     */
+    public Assignment getBest() {
+        return best;
+    }
+
+    /**
+     * Returns the cost of the best solution found so far.
+     *
+     * @return a long
+     */
+    public long getBestCost() {
+        return bestCost;
+    }
+
+    /**
+     * Records that every value of the given item failed, bumping its activity.
+     *
+     * @param item The {@link Item} whose values were exhausted.
+     * @return true if the failure limit of this run has now been reached, false otherwise
+     */
+    public boolean fail(Item item) {
+        activity[item.getIndex()]++;
+        variableOrdering.failed(item);
+        return ++failures >= failureLimit;
+    }
+
+    /**
+     * Returns the number of times every value of the given item failed, over all runs so far.
+     *
+     * @param item The {@link Item} to get the activity of.
+     * @return a long
+     */
+    public long getActivity(Item item) {
+        return activity[item.getIndex()];
+    }
+
+    /**
+     * Returns the random tie-breaking priority of the given item in the current run.
+     *
+     * @param item The {@link Item} to get the priority of.
+     * @return an integer
+     */
+    public int getPriority(Item item) {
+        return itemPriorities[item.getIndex()];
+    }
+
+    /**
+     * Returns the random tie-breaking priority of the given bag in the current run.
+     *
+     * @param bag The {@link Bag} to get the priority of.
+     * @return an integer
+     */
+    public int getPriority(Bag bag) {
+        return bagPriorities[bag.getIndex()];
+    }
+}
@@ -0,0 +1,136 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a solution to a {@link CSP}, mapping each of its items to a bag. A solution is kept apart from
+ * the items and bags themselves, so it can be read while the same CSP is being solved again, and it never changes once
+ * created.
+ *
+ * @author Daniel Beckwith
+ */
+public class Solution {
+
+    private final CSP csp;
+    private final Map<Item, Bag> bags;
+    private final Map<Bag, List<Item>> items;
+    private final boolean optimal;
+
+    /**
+     * Creates a Solution instance for the specified CSP from the {@link Assignment} of a solved copy of it, matching the
+     * items and bags up by name.
+     *
+     * @param csp    The {@link CSP} the solution is for.
+     * @param solved The solved copy of the {@link CSP}.
+     */
+    Solution(CSP csp, CSP solved) {
+        this(csp, solved, solved.getAssignment(), false);
+    }
+
+    /**
+     * Creates a Solution instance for the specified CSP from an {@link Assignment} of a compiled copy of it, matching
+     * the items and bags up by name. The copy may stand for several items of the CSP with one merged item, as made by
+     * {@link CSP#mergeEqualItems()}.
+     *
+     * @param csp        The {@link CSP} the solution is for.
+     * @param solved     The compiled copy of the {@link CSP}.
+     * @param assignment The complete {@link Assignment} of the copy.
+     * @param optimal    Whether the assignment was proven to minimize the cost it was optimized for.
+     */
+    Solution(CSP csp, CSP solved, Assignment assignment, boolean optimal) {
+        this.csp = csp;
+        this.optimal = optimal;
+        Map<String, Item> itemsByName = new HashMap<>();
+        Map<String, Bag> bagsByName = new HashMap<>();
+        csp.getItems().forEach(item -> itemsByName.put(item.getName(), item));
+        csp.getBags().forEach(bag -> bagsByName.put(bag.getName(), bag));
+
+        bags = new HashMap<>();
+        items = new LinkedHashMap<>();
+        csp.getBags().forEach(bag -> items.put(bag, new ArrayList<>()));
+        solved.getItems().forEach(solvedItem -> {
+            int solvedBag = assignment.getBag(solvedItem.getIndex());
+            if (solvedBag == Assignment.UNASSIGNED) return;
+            Bag bag = bagsByName.get(solved.getBag(solvedBag).getName());
+            // an item merged from several items of the CSP puts all of them in its bag
+            for (Item member : solved.getMembers(solvedItem)) {
+                Item item = itemsByName.get(member.getName());
+                bags.put(item, bag);
+                items.get(bag).add(item);
+            }
+        });
+    }
+
+    /**
+     * Returns the CSP this is a solution to.
+     *
+     * @return a {@link CSP}
+     */
+    public CSP getCSP() {
+        return csp;
+    }
+
+    /**
+     * Returns the bag the given item is in.
+     *
+     * @param item The {@link Item} of the CSP.
+     * @return a {@link Bag}
+     */
+    public Bag getBag(Item item) {
+        return bags.get(item);
+    }
+
+    /**
+     * Returns the items in the given bag.
+     *
+     * @param bag The {@link Bag} of the CSP.
+     * @return a {@link List&lt;{@link Item}&gt;}
+     */
+    public List<Item> getItems(Bag bag) {
+        return Collections.unmodifiableList(items.get(bag));
+    }
+
+    /**
+     * Returns the total weight of the items in the given bag.
+     *
+     * @param bag The {@link Bag} of the CSP.
+     * @return an integer
+     */
+    public int getTotalWeight(Bag bag) {
+        return items.get(bag).stream().mapToInt(Item::getWeight).sum();
+    }
+
+    /**
+     * Returns whether this solution was proven to minimize the {@link Objective} it was optimized for, rather than
+     * being the best one found before the search was stopped or the first one found.
+     *
+     * @return true if optimal, false otherwise
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * Compiles the CSP and adds every one of its items to its bag in this solution. The CSP must not be solved by
+     * another thread at the same time.
+     */
+    public void apply() {
+        csp.compile();
+        applyTo(csp.getAssignment());
+    }
+
+    /**
+     * Adds every item of this solution to its bag in the given assignment of the compiled CSP, leaving the items this
+     * solution does not cover as they are.
+     *
+     * @param assignment The {@link Assignment} of the CSP.
+     */
+    void applyTo(Assignment assignment) {
+        bags.forEach((item, bag) -> assignment.assign(item.getIndex(), bag.getIndex()));
+    }
+}
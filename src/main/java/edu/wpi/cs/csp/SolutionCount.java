@@ -0,0 +1,60 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This class represents the number of solutions to a {@link CSP} and the number of classes they fall into, where the
+ * solutions in a class only differ by swapping interchangeable bags. Both are counted by the same search.
+ *
+ * @author Daniel Beckwith
+ */
+public class SolutionCount {
+
+    private long solutions;
+    private long classes;
+    private boolean overflow;
+
+    /**
+     * Creates a SolutionCount instance with nothing counted yet.
+     */
+    SolutionCount() {
+        solutions = 0;
+        classes = 0;
+        overflow = false;
+    }
+
+    /**
+     * Counts the class of the solution the specified enumerator is at.
+     *
+     * @param enumerator The {@link SolutionEnumerator} at a solution.
+     */
+    void add(SolutionEnumerator enumerator) {
+        classes++;
+        if (overflow) return;
+        try {
+            solutions = Math.addExact(solutions, enumerator.getClassSize());
+        }
+        catch (ArithmeticException e) {
+            // the classes can still be counted, so the overflow is only reported when the solutions are asked for
+            overflow = true;
+        }
+    }
+
+    /**
+     * Returns the number of solutions.
+     *
+     * @return a long
+     * @throws ArithmeticException if the number does not fit in a long
+     */
+    public long getSolutions() {
+        if (overflow) throw new ArithmeticException("long overflow");
+        return solutions;
+    }
+
+    /**
+     * Returns the number of classes of solutions.
+     *
+     * @return a long
+     */
+    public long getClasses() {
+        return classes;
+    }
+}
@@ -0,0 +1,61 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This class represents a search over every solution of a prepared CSP that stops at each solution and carries on from
+ * there when asked for the next one. It runs the same search as the {@link CSPSolver}, whose explicit stack of
+ * {@link ChoicePoint}s is left as it is at a solution, so that the search can return to its caller in between
+ * solutions.
+ * <p>
+ * When breaking bag symmetry, the {@link SymmetryBreaker} only lets an item be added to the first empty bag of each
+ * class of interchangeable bags. Exactly one solution is then found out of each class of solutions that only differ by
+ * swapping interchangeable bags. Identical items are told apart, since every solution is wanted.
+ *
+ * @author Daniel Beckwith
+ */
+class SolutionEnumerator {
+
+    private final CSPSolver solver;
+    private final CSP csp;
+    private final SearchState state;
+    private boolean started;
+    private boolean done;
+
+    /**
+     * Creates a SolutionEnumerator instance that searches the specified prepared CSP from the root.
+     *
+     * @param solver The {@link CSPSolver} whose search to run.
+     * @param csp    The {@link CSP} to search.
+     * @param state  The {@link SearchState} of this search, with its run already started and its symmetry breaking set
+     *               up to tell identical items apart.
+     */
+    SolutionEnumerator(CSPSolver solver, CSP csp, SearchState state) {
+        this.solver = solver;
+        this.csp = csp;
+        this.state = state;
+        started = false;
+        done = false;
+    }
+
+    /**
+     * Searches on to the next solution, which is left as the assignment of the CSP until this is called again.
+     *
+     * @return true if there is another solution, false if every solution has been found or the search was stopped
+     */
+    boolean next() {
+        if (done) return false;
+        done = solver.nextSolution(csp, state, started) != CSPSolver.Outcome.SOLVED;
+        started = true;
+        return !done;
+    }
+
+    /**
+     * Returns the number of solutions in the class of the current solution, which are all the ways of swapping its
+     * used bags with interchangeable empty ones. Only meaningful when breaking bag symmetry.
+     *
+     * @return a long
+     * @throws ArithmeticException if the number does not fit in a long
+     */
+    long getClassSize() {
+        return state.getSymmetryBreaker().getClassSize(csp.getAssignment());
+    }
+}
@@ -0,0 +1,26 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This interface defines the callbacks through which a running solve reports its results as they are found. The
+ * callbacks run on the searching thread between search nodes, so they should return quickly. A listener shared by
+ * several searches at once, such as those of a {@link PortfolioSolver}, may be called from several threads.
+ *
+ * @author Daniel Beckwith
+ */
+public interface SolverListener {
+
+    /**
+     * Called with each solution found. When optimizing, each one is cheaper than the last.
+     *
+     * @param solution The {@link Solution} found.
+     */
+    default void solutionFound(Solution solution) {}
+
+    /**
+     * Called periodically with a snapshot of the search, every {@link SolverOptions#getProgressInterval()}
+     * milliseconds.
+     *
+     * @param progress The {@link Progress} of the search.
+     */
+    default void progress(Progress progress) {}
+}
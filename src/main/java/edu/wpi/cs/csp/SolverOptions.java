@@ -0,0 +1,434 @@
+package edu.wpi.cs.csp;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * This class represents the settings for a single run of the {@link CSPSolver}.
+ *
+ * @author Daniel Beckwith
+ */
+public class SolverOptions {
+
+    /**
+     * The ways the failure limit can grow from one restart to the next.
+     */
+    public enum RestartSchedule {
+        LUBY, GEOMETRIC
+    }
+
+    private Supplier<Propagator> propagator;
+    private Supplier<VariableOrdering> variableOrdering;
+    private boolean capacityPropagation;
+    private boolean backjumping;
+    private int nogoodLimit;
+    private boolean symmetryBreaking;
+    private boolean equalityMerging;
+    private boolean restarts;
+    private RestartSchedule restartSchedule;
+    private long restartBase;
+    private double restartFactor;
+    private long seed;
+    private Objective objective;
+    private long timeLimit;
+    private long nodeLimit;
+    private SolverListener listener;
+    private long progressInterval;
+    private AtomicBoolean cancellation;
+
+    /**
+     * Creates a SolverOptions instance with the default settings, which use forward checking and capacity propagation.
+     */
+    public SolverOptions() {
+        propagator = ForwardCheckingPropagator::new;
+        variableOrdering = MinDomainOrdering::new;
+        capacityPropagation = true;
+        backjumping = false;
+        nogoodLimit = 10000;
+        symmetryBreaking = true;
+        equalityMerging = true;
+        restarts = false;
+        restartSchedule = RestartSchedule.LUBY;
+        restartBase = 100;
+        restartFactor = 1.5;
+        seed = 0;
+        objective = Objective.WASTED_CAPACITY;
+        timeLimit = Long.MAX_VALUE;
+        nodeLimit = Long.MAX_VALUE;
+        listener = null;
+        progressInterval = 1000;
+        cancellation = new AtomicBoolean(false);
+    }
+
+    /**
+     * Creates a SolverOptions instance with the same settings as the specified one, sharing its listener and
+     * cancellation flag.
+     *
+     * @param options The {@link SolverOptions} to copy.
+     */
+    public SolverOptions(SolverOptions options) {
+        propagator = options.propagator;
+        variableOrdering = options.variableOrdering;
+        capacityPropagation = options.capacityPropagation;
+        backjumping = options.backjumping;
+        nogoodLimit = options.nogoodLimit;
+        symmetryBreaking = options.symmetryBreaking;
+        equalityMerging = options.equalityMerging;
+        restarts = options.restarts;
+        restartSchedule = options.restartSchedule;
+        restartBase = options.restartBase;
+        restartFactor = options.restartFactor;
+        seed = options.seed;
+        objective = options.objective;
+        timeLimit = options.timeLimit;
+        nodeLimit = options.nodeLimit;
+        listener = options.listener;
+        progressInterval = options.progressInterval;
+        cancellation = options.cancellation;
+    }
+
+    /**
+     * Returns the factory of the propagation engine run after each assignment. Every solve creates its own engine, so
+     * the same settings can be used by several solves at once.
+     *
+     * @return a {@link Supplier&lt;{@link Propagator}&gt;}
+     */
+    public Supplier<Propagator> getPropagator() {
+        return propagator;
+    }
+
+    /**
+     * Sets the factory of the propagation engine run after each assignment, such as
+     * {@code ArcConsistencyPropagator::new}.
+     *
+     * @param propagator The {@link Supplier&lt;{@link Propagator}&gt;} creating the engine of each solve.
+     */
+    public void setPropagator(Supplier<Propagator> propagator) {
+        this.propagator = propagator;
+    }
+
+    /**
+     * Returns the factory of the heuristic that picks the next item to assign. Every solve creates its own heuristic.
+     *
+     * @return a {@link Supplier&lt;{@link VariableOrdering}&gt;}
+     */
+    public Supplier<VariableOrdering> getVariableOrdering() {
+        return variableOrdering;
+    }
+
+    /**
+     * Sets the factory of the heuristic that picks the next item to assign, such as
+     * {@code WeightedDegreeOrdering::new}.
+     *
+     * @param variableOrdering The {@link Supplier&lt;{@link VariableOrdering}&gt;} creating the heuristic of each
+     *                         solve.
+     */
+    public void setVariableOrdering(Supplier<VariableOrdering> variableOrdering) {
+        this.variableOrdering = variableOrdering;
+    }
+
+    /**
+     * Returns whether the bag weight and size limits are propagated globally by a {@link CapacityPropagator} after the
+     * propagation engine runs.
+     *
+     * @return true if capacity propagation is on, false otherwise
+     */
+    public boolean isCapacityPropagation() {
+        return capacityPropagation;
+    }
+
+    /**
+     * Sets whether the bag weight and size limits are propagated globally by a {@link CapacityPropagator} after the
+     * propagation engine runs.
+     *
+     * @param capacityPropagation Whether to turn capacity propagation on.
+     */
+    public void setCapacityPropagation(boolean capacityPropagation) {
+        this.capacityPropagation = capacityPropagation;
+    }
+
+    /**
+     * Returns whether the search uses conflict-directed backjumping with nogood learning instead of chronological
+     * backtracking.
+     *
+     * @return true if backjumping is on, false otherwise
+     */
+    public boolean isBackjumping() {
+        return backjumping;
+    }
+
+    /**
+     * Sets whether the search uses conflict-directed backjumping with nogood learning instead of chronological
+     * backtracking.
+     *
+     * @param backjumping Whether to turn backjumping on.
+     */
+    public void setBackjumping(boolean backjumping) {
+        this.backjumping = backjumping;
+    }
+
+    /**
+     * Returns the maximum number of learned nogoods kept when backjumping, after which the least recently used ones
+     * are evicted.
+     *
+     * @return an integer
+     */
+    public int getNogoodLimit() {
+        return nogoodLimit;
+    }
+
+    /**
+     * Sets the maximum number of learned nogoods kept when backjumping, after which the least recently used ones are
+     * evicted.
+     *
+     * @param nogoodLimit The maximum number of nogoods.
+     */
+    public void setNogoodLimit(int nogoodLimit) {
+        this.nogoodLimit = nogoodLimit;
+    }
+
+    /**
+     * Returns whether the search skips subtrees that only differ from one already searched by swapping interchangeable
+     * bags or identical items.
+     *
+     * @return true if symmetry breaking is on, false otherwise
+     */
+    public boolean isSymmetryBreaking() {
+        return symmetryBreaking;
+    }
+
+    /**
+     * Sets whether the search skips subtrees that only differ from one already searched by swapping interchangeable
+     * bags or identical items.
+     *
+     * @param symmetryBreaking Whether to turn symmetry breaking on.
+     */
+    public void setSymmetryBreaking(boolean symmetryBreaking) {
+        this.symmetryBreaking = symmetryBreaking;
+    }
+
+    /**
+     * Returns whether the items that equality constraints force into the same bag are merged into one item before
+     * searching, so that the search branches on them once.
+     *
+     * @return true if equality merging is on, false otherwise
+     */
+    public boolean isEqualityMerging() {
+        return equalityMerging;
+    }
+
+    /**
+     * Sets whether the items that equality constraints force into the same bag are merged into one item before
+     * searching.
+     *
+     * @param equalityMerging Whether to turn equality merging on.
+     */
+    public void setEqualityMerging(boolean equalityMerging) {
+        this.equalityMerging = equalityMerging;
+    }
+
+    /**
+     * Returns whether the search restarts from scratch with new random tie-breaking each time a run reaches its
+     * failure limit.
+     *
+     * @return true if restarts are on, false otherwise
+     */
+    public boolean isRestarts() {
+        return restarts;
+    }
+
+    /**
+     * Sets whether the search restarts from scratch with new random tie-breaking each time a run reaches its failure
+     * limit.
+     *
+     * @param restarts Whether to turn restarts on.
+     */
+    public void setRestarts(boolean restarts) {
+        this.restarts = restarts;
+    }
+
+    /**
+     * Returns how the failure limit grows from one restart to the next.
+     *
+     * @return a {@link RestartSchedule}
+     */
+    public RestartSchedule getRestartSchedule() {
+        return restartSchedule;
+    }
+
+    /**
+     * Sets how the failure limit grows from one restart to the next.
+     *
+     * @param restartSchedule The {@link RestartSchedule} to use.
+     */
+    public void setRestartSchedule(RestartSchedule restartSchedule) {
+        this.restartSchedule = restartSchedule;
+    }
+
+    /**
+     * Returns the failure limit of the first run, which the restart schedule multiplies for later runs.
+     *
+     * @return a long
+     */
+    public long getRestartBase() {
+        return restartBase;
+    }
+
+    /**
+     * Sets the failure limit of the first run, which the restart schedule multiplies for later runs.
+     *
+     * @param restartBase The number of failures.
+     */
+    public void setRestartBase(long restartBase) {
+        this.restartBase = restartBase;
+    }
+
+    /**
+     * Returns the factor the failure limit grows by on each restart with the geometric schedule.
+     *
+     * @return a double
+     */
+    public double getRestartFactor() {
+        return restartFactor;
+    }
+
+    /**
+     * Sets the factor the failure limit grows by on each restart with the geometric schedule.
+     *
+     * @param restartFactor The growth factor, greater than 1.
+     */
+    public void setRestartFactor(double restartFactor) {
+        this.restartFactor = restartFactor;
+    }
+
+    /**
+     * Returns the seed of the random tie-breaking, so that runs with the same seed are reproducible.
+     *
+     * @return a long
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the random tie-breaking, so that runs with the same seed are reproducible.
+     *
+     * @param seed The random seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the cost minimized by {@link CSPSolver#optimize(CSP, SolverOptions)}.
+     *
+     * @return an {@link Objective}
+     */
+    public Objective getObjective() {
+        return objective;
+    }
+
+    /**
+     * Sets the cost minimized by {@link CSPSolver#optimize(CSP, SolverOptions)}.
+     *
+     * @param objective The {@link Objective} to minimize.
+     */
+    public void setObjective(Objective objective) {
+        this.objective = objective;
+    }
+
+    /**
+     * Returns the number of milliseconds after which the search gives up, keeping the best solution found so far when
+     * optimizing.
+     *
+     * @return a long
+     */
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Sets the number of milliseconds after which the search gives up, keeping the best solution found so far when
+     * optimizing.
+     *
+     * @param timeLimit The time budget in milliseconds.
+     */
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Returns the number of search nodes after which the search gives up, keeping the best solution found so far when
+     * optimizing.
+     *
+     * @return a long
+     */
+    public long getNodeLimit() {
+        return nodeLimit;
+    }
+
+    /**
+     * Sets the number of search nodes after which the search gives up, keeping the best solution found so far when
+     * optimizing.
+     *
+     * @param nodeLimit The node budget.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Returns the listener told about each solution found and the progress of the search, or null if there is none.
+     *
+     * @return a {@link SolverListener}
+     */
+    public SolverListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener told about each solution found and the progress of the search.
+     *
+     * @param listener The {@link SolverListener} to notify, or null for none.
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the number of milliseconds between the progress snapshots given to the listener.
+     *
+     * @return a long
+     */
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * Sets the number of milliseconds between the progress snapshots given to the listener.
+     *
+     * @param progressInterval The interval in milliseconds.
+     */
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Returns the cancellation flag, which the search checks at every node and gives up as soon as it is set.
+     *
+     * @return an {@link AtomicBoolean}
+     */
+    public AtomicBoolean getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Sets the cancellation flag, which the search checks at every node and gives up as soon as it is set. The same
+     * flag can be shared by several searches to cancel them all at once.
+     *
+     * @param cancellation The {@link AtomicBoolean} to check.
+     */
+    public void setCancellation(AtomicBoolean cancellation) {
+        this.cancellation = cancellation;
+    }
+}
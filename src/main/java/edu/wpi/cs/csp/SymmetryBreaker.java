@@ -0,0 +1,148 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents the symmetry breaking of a search, using the classes of interchangeable bags and identical
+ * items of the {@link Problem}.
+ * <p>
+ * Bag symmetry is broken by only adding an item to an empty bag if the interchangeable bag before it already holds an
+ * item, so the used bags of each class always come first. Adding the item to any later empty bag of the class would
+ * lead to the same subtree with the bags swapped.
+ * <p>
+ * Item symmetry is broken dynamically: once adding an item to a bag has failed, the bag is removed from the domains
+ * of the unassigned items identical to it for the rest of the subtree, since swapping the two items turns any solution
+ * with the other item in that bag into one with the failed assignment. Unlike a fixed order on the bags of identical
+ * items, this never clashes with the bag symmetry breaking or the variable ordering.
+ *
+ * @author Daniel Beckwith
+ */
+public class SymmetryBreaker {
+
+    private static final int[] NONE = new int[0];
+
+    private final boolean bagSymmetry;
+    private final boolean itemSymmetry;
+    private final int[] previousBags;
+    private final int[] classSizes;
+    private final int[] classRanks;
+    private final int[][] identicalItems;
+
+    /**
+     * Creates a SymmetryBreaker instance for the specified compiled problem.
+     *
+     * @param problem The {@link Problem} being searched.
+     * @param enabled Whether to break symmetry, or let every bag and item be told apart.
+     */
+    public SymmetryBreaker(Problem problem, boolean enabled) {
+        this(problem, enabled, enabled);
+    }
+
+    /**
+     * Creates a SymmetryBreaker instance for the specified compiled problem that breaks the symmetry of the bags and of
+     * the items separately.
+     *
+     * @param problem      The {@link Problem} being searched.
+     * @param bagSymmetry  Whether to break bag symmetry, or let every bag be told apart.
+     * @param itemSymmetry Whether to break item symmetry, or let every item be told apart.
+     */
+    public SymmetryBreaker(Problem problem, boolean bagSymmetry, boolean itemSymmetry) {
+        this.bagSymmetry = bagSymmetry;
+        this.itemSymmetry = itemSymmetry;
+
+        // link each bag to the interchangeable bag before it and count the bags of each class
+        int bagCount = problem.getBagCount();
+        previousBags = new int[bagCount];
+        classSizes = new int[bagCount];
+        classRanks = new int[bagCount];
+        int[] lastBags = new int[bagCount];
+        for (int b = 0; b < bagCount; b++) {
+            int bagClass = problem.getBagClass(b);
+            previousBags[b] = bagClass == b ? -1 : lastBags[bagClass];
+            classRanks[b] = classSizes[bagClass]++;
+            lastBags[bagClass] = b;
+        }
+
+        // list the other items of the class of each item
+        int itemCount = problem.getItemCount();
+        List<List<Integer>> classes = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            classes.add(new ArrayList<>());
+            classes.get(problem.getItemClass(i)).add(i);
+        }
+        identicalItems = new int[itemCount][];
+        for (int i = 0; i < itemCount; i++) {
+            int item = i;
+            List<Integer> members = classes.get(problem.getItemClass(i));
+            identicalItems[i] = members.size() == 1 ? NONE : members.stream()
+                    .filter(other -> other != item)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    /**
+     * Returns whether symmetry is broken at all.
+     *
+     * @return true if enabled, false otherwise
+     */
+    public boolean isEnabled() {
+        return bagSymmetry || itemSymmetry;
+    }
+
+    /**
+     * Returns whether the given bag holds an item or is the first empty bag of its class, so that an item may be added
+     * to it. Every bag may be used when bag symmetry is not broken.
+     *
+     * @param assignment The current {@link Assignment}.
+     * @param bag        The index of the bag.
+     * @return true if an item may be added to it, false otherwise
+     */
+    public boolean isCanonical(Assignment assignment, int bag) {
+        return !bagSymmetry || assignment.size(bag) > 0 || previousBags[bag] < 0 ||
+                assignment.size(previousBags[bag]) > 0;
+    }
+
+    /**
+     * Returns the number of assignments that only differ from the given one by swapping its used bags with
+     * interchangeable empty ones. Only meaningful for an assignment that breaks bag symmetry.
+     *
+     * @param assignment The {@link Assignment} to count the class of.
+     * @return a long
+     * @throws ArithmeticException if the number does not fit in a long
+     */
+    public long getClassSize(Assignment assignment) {
+        Problem problem = assignment.getProblem();
+        long size = 1;
+        for (int b = 0; b < previousBags.length; b++) {
+            if (assignment.size(b) > 0) {
+                // the used bags of a class come first, so this is the falling factorial of the class size
+                size = Math.multiplyExact(size, classSizes[problem.getBagClass(b)] - classRanks[b]);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes the given bag from the domains of the unassigned items identical to the given item, after adding the
+     * item to the bag has failed. The removals are undone with the rest of the domain changes of the current level.
+     *
+     * @param item The {@link Item} that could not be added to the bag.
+     * @param bag  The {@link Bag} it could not be added to.
+     * @param csp  The {@link CSP} being searched.
+     * @return false if this left some item with an empty domain, true otherwise
+     */
+    public boolean exclude(Item item, Bag bag, CSP csp) {
+        if (!itemSymmetry) return true;
+
+        Assignment assignment = csp.getAssignment();
+        Domains domains = csp.getDomains();
+        for (int other : identicalItems[item.getIndex()]) {
+            if (!assignment.isAssigned(other) && domains.remove(other, bag.getIndex()) && domains.isEmpty(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
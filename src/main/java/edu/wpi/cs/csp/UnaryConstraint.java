@@ -0,0 +1,33 @@
+package edu.wpi.cs.csp;
+
+/**
+ * This interface defines the common functionality between the constraints that restrict the bag of exactly one item
+ * and nothing else, so that they can be applied directly to that item's domain before searching.
+ *
+ * @author Daniel Beckwith
+ */
+public interface UnaryConstraint extends Constraint {
+
+    /**
+     * Returns the item in this constraint.
+     *
+     * @return an {@link Item}
+     */
+    Item getItem();
+
+    /**
+     * Tests whether this constraint would be satisfied if the item was in the given bag.
+     *
+     * @param bag The index of the bag of the item.
+     * @return true if satisfied, false otherwise
+     */
+    boolean isSatisfied(int bag);
+
+    @Override
+    default Result test(Assignment assignment) {
+        // if this constraint's item hasn't been assigned, ignore this constraint
+        int bag = assignment.getBag(getItem().getIndex());
+        if (bag == Assignment.UNASSIGNED) return Result.IGNORED;
+        return isSatisfied(bag) ? Result.PASSED : Result.FAILED;
+    }
+}
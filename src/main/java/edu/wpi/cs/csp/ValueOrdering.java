@@ -0,0 +1,123 @@
+package edu.wpi.cs.csp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents the least-constraining-value scores of a search: for each bag an item could be added to, the
+ * number of bags its unassigned neighbors could still be added to afterwards.
+ * <p>
+ * The scores are counted from the live domains rather than by testing every neighbor against every bag. The bags a
+ * neighbor is allowed by the binary constraints it shares with the item are worked out once per bag of the item, as a
+ * bag mask, and then intersected with the neighbor's domain. Only the bag the item is added to needs testing, since
+ * its weight and size are the only other thing that changes. A neighbor sharing any other kind of constraint with the
+ * item is tested against each bag of its domain instead.
+ *
+ * @author Daniel Beckwith
+ */
+public class ValueOrdering {
+
+    private final CSP csp;
+    private final long[][][][] supports;
+    private final long[] scores;
+
+    /**
+     * Creates a ValueOrdering instance for the specified compiled CSP.
+     *
+     * @param csp The {@link CSP} being searched.
+     */
+    public ValueOrdering(CSP csp) {
+        this.csp = csp;
+        supports = new long[csp.getItems().size()][][][];
+        scores = new long[csp.getBags().size()];
+    }
+
+    /**
+     * Returns the score of adding the given item to each bag in its domain, indexed by bag. A higher score leaves the
+     * neighbors of the item more bags to choose from. The same array is filled in again by the next call.
+     *
+     * @param item The {@link Item} about to be assigned.
+     * @return a long[]
+     */
+    public long[] score(Item item) {
+        int i = item.getIndex();
+        if (supports[i] == null) {
+            supports[i] = findSupports(item);
+        }
+        List<Item> neighbors = csp.getNeighbors(item);
+        Domains domains = csp.getDomains();
+        Assignment assignment = csp.getAssignment();
+
+        for (int b = domains.next(i, 0); b >= 0; b = domains.next(i, b + 1)) {
+            Bag bag = csp.getBag(b);
+            assignment.assign(i, b);
+            long score = 0;
+            for (int k = 0; k < neighbors.size(); k++) {
+                Item neighbor = neighbors.get(k);
+                int n = neighbor.getIndex();
+                if (assignment.isAssigned(n)) continue;
+
+                if (supports[i][k] == null) {
+                    // no mask for this neighbor, so test each bag it has left
+                    for (int b2 = domains.next(n, 0); b2 >= 0; b2 = domains.next(n, b2 + 1)) {
+                        if (csp.canAdd(csp.getBag(b2), neighbor)) score++;
+                    }
+                    continue;
+                }
+                long[] mask = supports[i][k][b];
+                score += domains.countCommon(n, mask);
+                // sharing the bag also needs room for both
+                if (domains.contains(n, b) && (mask[b >>> 6] & (1L << b)) != 0 && !csp.canAdd(bag, neighbor)) {
+                    score--;
+                }
+            }
+            assignment.unassign(i);
+            scores[b] = score;
+        }
+        return scores;
+    }
+
+    /**
+     * Works out the bags each neighbor of the given item is allowed by the binary constraints between them, for each
+     * bag of the item.
+     *
+     * @param item The {@link Item} to find the supports of.
+     * @return the bag masks by neighbor and bag of the item, with no masks for a neighbor sharing some other constraint
+     */
+    private long[][][] findSupports(Item item) {
+        List<Item> neighbors = csp.getNeighbors(item);
+        Domains domains = csp.getDomains();
+        int bagCount = domains.getBagCount();
+        long[][][] itemSupports = new long[neighbors.size()][][];
+
+        for (int k = 0; k < neighbors.size(); k++) {
+            Item neighbor = neighbors.get(k);
+            List<BinaryConstraint> shared = new ArrayList<>();
+            boolean binaryOnly = true;
+            for (Constraint constraint : csp.getConstraints(item)) {
+                if (!constraint.involves(neighbor)) continue;
+                if (!(constraint instanceof BinaryConstraint)) {
+                    binaryOnly = false;
+                    break;
+                }
+                shared.add((BinaryConstraint) constraint);
+            }
+            if (!binaryOnly) continue;
+
+            itemSupports[k] = new long[bagCount][];
+            for (int b = 0; b < bagCount; b++) {
+                long[] mask = domains.fullMask();
+                for (BinaryConstraint constraint : shared) {
+                    boolean forward = constraint.getItem1().getIndex() == item.getIndex();
+                    for (int b2 = 0; b2 < bagCount; b2++) {
+                        if (!(forward ? constraint.isSatisfied(b, b2) : constraint.isSatisfied(b2, b))) {
+                            mask[b2 >>> 6] &= ~(1L << b2);
+                        }
+                    }
+                }
+                itemSupports[k][b] = mask;
+            }
+        }
+        return itemSupports;
+    }
+}
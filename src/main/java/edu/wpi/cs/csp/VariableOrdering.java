@@ -0,0 +1,261 @@
+package edu.wpi.cs.csp;
+
+import java.util.Optional;
+
+/**
+ * This class represents a variable-ordering heuristic, which picks the next item to assign. The unassigned items are
+ * kept in a binary heap ordered by the heuristic, so the next item is always at the top. The heap is told about every
+ * assignment and every domain change, and an item whose key may have changed is moved within the heap right away in
+ * O(log n), instead of scanning every item each time one is picked.
+ * <p>
+ * Items that the heuristic ranks equally are tried in the random order of the current run when restarts are on, and
+ * in index order otherwise.
+ *
+ * @author Daniel Beckwith
+ */
+public abstract class VariableOrdering {
+
+    protected CSP csp;
+    protected SearchState state;
+    protected Domains domains;
+    protected Assignment assignment;
+    private int[] sizes;
+    private int[] heap;
+    private int[] positions;
+    private int heapSize;
+
+    /**
+     * Sets up this ordering for the specified compiled CSP, whose domains have already been initialized, and starts
+     * listening to its domains.
+     *
+     * @param csp   The {@link CSP} being searched.
+     * @param state The {@link SearchState} of the search.
+     */
+    public final void initialize(CSP csp, SearchState state) {
+        this.csp = csp;
+        this.state = state;
+        domains = csp.getDomains();
+        assignment = csp.getAssignment();
+        int itemCount = domains.getItemCount();
+        sizes = new int[itemCount];
+        heap = new int[itemCount];
+        positions = new int[itemCount];
+        heapSize = 0;
+
+        setUp();
+        for (int i = 0; i < itemCount; i++) {
+            positions[i] = -1;
+            if (!assignment.isAssigned(i)) {
+                sizes[i] = domains.size(i);
+                refresh(i);
+                positions[i] = heapSize;
+                heap[heapSize++] = i;
+            }
+        }
+        heapify();
+        domains.setListener(this::domainChanged);
+    }
+
+    /**
+     * Returns the unassigned item the heuristic ranks first, if there is one.
+     *
+     * @return an {@link Optional&lt;{@link Item}&gt;}
+     */
+    public Optional<Item> next() {
+        return heapSize == 0 ? Optional.empty() : Optional.of(csp.getItem(heap[0]));
+    }
+
+    /**
+     * Returns the index of the unassigned item the heuristic ranks first, or -1 if every item is assigned.
+     *
+     * @return an integer
+     */
+    public int peek() {
+        return heapSize == 0 ? -1 : heap[0];
+    }
+
+    /**
+     * Called right after the given item has been added to the given bag, before propagation.
+     *
+     * @param item The {@link Item} that was assigned.
+     * @param bag  The {@link Bag} it was added to.
+     */
+    public void assigned(Item item, Bag bag) {
+        remove(item.getIndex());
+    }
+
+    /**
+     * Called after propagating the assignment of the given item to the given bag.
+     *
+     * @param item       The {@link Item} that was assigned.
+     * @param bag        The {@link Bag} it was added to.
+     * @param consistent False if propagation wiped out some domain, true otherwise.
+     */
+    public void propagated(Item item, Bag bag, boolean consistent) {}
+
+    /**
+     * Called after the assignment of the given item to the given bag, and its domain changes, have been undone.
+     *
+     * @param item The {@link Item} that was unassigned.
+     * @param bag  The {@link Bag} it was removed from.
+     */
+    public void unassigned(Item item, Bag bag) {
+        int i = item.getIndex();
+        sizes[i] = domains.size(i);
+        refresh(i);
+        positions[i] = heapSize;
+        heap[heapSize++] = i;
+        siftUp(positions[i]);
+    }
+
+    /**
+     * Called each time every value of the given item has failed, or assigning it wiped out some domain.
+     *
+     * @param item The {@link Item} that failed.
+     */
+    public void failed(Item item) {
+        update(item.getIndex());
+    }
+
+    /**
+     * Called at the start of each run of the search, once the random tie-breaking priorities have been drawn.
+     */
+    public void restart() {
+        heapify();
+    }
+
+    /**
+     * Sets up the state of the heuristic, before any key is computed.
+     */
+    protected void setUp() {}
+
+    /**
+     * Called with the index of an item each time its domain changes or a change to it is undone.
+     *
+     * @param item The index of the item.
+     */
+    protected void domainChanged(int item) {
+        update(item);
+    }
+
+    /**
+     * Recomputes any key the heuristic caches for the given item, before it is moved within the heap.
+     *
+     * @param item The index of the item.
+     */
+    protected void refresh(int item) {}
+
+    /**
+     * Compares two unassigned items under the heuristic.
+     *
+     * @param item1 The index of the first item.
+     * @param item2 The index of the second item.
+     * @return a negative integer if the first item should be assigned first, a positive integer if the second, 0 if
+     * the heuristic ranks them equally
+     */
+    protected abstract int compareKeys(int item1, int item2);
+
+    /**
+     * Refreshes the key of the given item and moves it within the heap, if it is unassigned. Must be called whenever
+     * anything the key depends on changes, apart from the domain of the item itself.
+     *
+     * @param item The index of the item.
+     */
+    protected final void update(int item) {
+        if (positions[item] < 0) return;
+        sizes[item] = domains.size(item);
+        refresh(item);
+        siftDown(siftUp(positions[item]));
+    }
+
+    /**
+     * Returns the size of the domain of the given item when its key was last refreshed.
+     *
+     * @param item The index of the item.
+     * @return an integer
+     */
+    protected final int getSize(int item) {
+        return sizes[item];
+    }
+
+    /**
+     * Compares two items under the heuristic, then by their random priorities or indices.
+     *
+     * @param item1 The index of the first item.
+     * @param item2 The index of the second item.
+     * @return a negative integer if the first item should be assigned first, a positive integer otherwise
+     */
+    private int compare(int item1, int item2) {
+        int result = compareKeys(item1, item2);
+        if (result != 0) return result;
+        if (state.getOptions().isRestarts()) {
+            result = Integer.compare(state.getPriority(csp.getItem(item1)), state.getPriority(csp.getItem(item2)));
+            if (result != 0) return result;
+        }
+        return Integer.compare(item1, item2);
+    }
+
+    /**
+     * Takes the given item out of the heap.
+     *
+     * @param item The index of the item.
+     */
+    private void remove(int item) {
+        int position = positions[item];
+        positions[item] = -1;
+        int last = heap[--heapSize];
+        if (position == heapSize) return;
+        heap[position] = last;
+        positions[last] = position;
+        siftDown(siftUp(position));
+    }
+
+    /**
+     * Restores the heap order over every item in the heap.
+     */
+    private void heapify() {
+        for (int position = heapSize / 2 - 1; position >= 0; position--) {
+            siftDown(position);
+        }
+    }
+
+    /**
+     * Moves the item at the given position up the heap until its parent comes before it.
+     *
+     * @param position The position of the item.
+     * @return the new position of the item
+     */
+    private int siftUp(int position) {
+        int item = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (compare(heap[parent], item) <= 0) break;
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = item;
+        positions[item] = position;
+        return position;
+    }
+
+    /**
+     * Moves the item at the given position down the heap until it comes before both of its children.
+     *
+     * @param position The position of the item.
+     */
+    private void siftDown(int position) {
+        int item = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && compare(heap[child + 1], heap[child]) < 0) child++;
+            if (compare(item, heap[child]) <= 0) break;
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+}
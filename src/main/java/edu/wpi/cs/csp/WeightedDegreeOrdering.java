@@ -0,0 +1,136 @@
+package edu.wpi.cs.csp;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents the dom/wdeg heuristic: the item with the smallest ratio of remaining bags to weighted degree
+ * is assigned first. Every constraint starts with a weight of 1, which goes up each time it wipes out a domain, and the
+ * weighted degree of an item is the total weight of the constraints it shares with unassigned items. The search is
+ * drawn towards the items involved in the hardest part of the problem.
+ * <p>
+ * When assigning an item wipes out the domain of an item it shares no constraint with, as the bag limits can, the
+ * wiped out item itself gets the extra weight instead.
+ *
+ * @author Daniel Beckwith
+ */
+public class WeightedDegreeOrdering extends VariableOrdering {
+
+    private int[][] scopes;
+    private int[][] others;
+    private int[][] constraintsByOther;
+    private long[] weights;
+    private long[] weightedDegrees;
+
+    @Override
+    protected void setUp() {
+        int itemCount = domains.getItemCount();
+        List<Constraint> constraints = csp.getProblem().getConstraints();
+        Map<Constraint, Integer> indices = new IdentityHashMap<>();
+        scopes = new int[constraints.size()][];
+        weights = new long[constraints.size()];
+        for (int c = 0; c < constraints.size(); c++) {
+            indices.put(constraints.get(c), c);
+            scopes[c] = constraints.get(c).getScopeItems().stream().mapToInt(Item::getIndex).toArray();
+            weights[c] = 1;
+        }
+
+        // pair each item with the other items of each constraint it is in
+        others = new int[itemCount][];
+        constraintsByOther = new int[itemCount][];
+        weightedDegrees = new long[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            List<Constraint> itemConstraints = csp.getConstraints(csp.getItem(i));
+            int pairs = 0;
+            for (Constraint constraint : itemConstraints) {
+                for (int other : scopes[indices.get(constraint)]) {
+                    if (other != i) pairs++;
+                }
+            }
+            others[i] = new int[pairs];
+            constraintsByOther[i] = new int[pairs];
+            int k = 0;
+            for (Constraint constraint : itemConstraints) {
+                int c = indices.get(constraint);
+                for (int other : scopes[c]) {
+                    if (other == i) continue;
+                    others[i][k] = other;
+                    constraintsByOther[i][k++] = c;
+                }
+            }
+
+            // the item's own weight keeps the ratio finite
+            weightedDegrees[i] = 1;
+            for (k = 0; k < pairs; k++) {
+                if (!assignment.isAssigned(others[i][k])) weightedDegrees[i] += weights[constraintsByOther[i][k]];
+            }
+        }
+    }
+
+    @Override
+    public void assigned(Item item, Bag bag) {
+        super.assigned(item, bag);
+        int i = item.getIndex();
+        for (int k = 0; k < others[i].length; k++) {
+            weightedDegrees[others[i][k]] -= weights[constraintsByOther[i][k]];
+            update(others[i][k]);
+        }
+    }
+
+    @Override
+    public void propagated(Item item, Bag bag, boolean consistent) {
+        if (consistent) return;
+
+        // weight the constraints between the item and the first item left with nothing in its domain
+        int i = item.getIndex();
+        for (int wiped = 0; wiped < domains.getItemCount(); wiped++) {
+            if (assignment.isAssigned(wiped) || !domains.isEmpty(wiped)) continue;
+            boolean shared = false;
+            for (int k = 0; k < others[i].length; k++) {
+                if (others[i][k] == wiped) {
+                    increaseWeight(constraintsByOther[i][k]);
+                    shared = true;
+                }
+            }
+            if (!shared) {
+                weightedDegrees[wiped]++;
+                update(wiped);
+            }
+            return;
+        }
+    }
+
+    @Override
+    public void unassigned(Item item, Bag bag) {
+        int i = item.getIndex();
+        for (int k = 0; k < others[i].length; k++) {
+            weightedDegrees[others[i][k]] += weights[constraintsByOther[i][k]];
+            update(others[i][k]);
+        }
+        super.unassigned(item, bag);
+    }
+
+    @Override
+    protected int compareKeys(int item1, int item2) {
+        // size1 / wdeg1 against size2 / wdeg2 without dividing
+        int result = Long.compare(getSize(item1) * weightedDegrees[item2], getSize(item2) * weightedDegrees[item1]);
+        return result != 0 ? result : Integer.compare(getSize(item1), getSize(item2));
+    }
+
+    /**
+     * Increases the weight of the given constraint, and the weighted degree of each of its items by the weight for
+     * each other unassigned item it shares it with.
+     *
+     * @param constraint The index of the constraint in the problem.
+     */
+    private void increaseWeight(int constraint) {
+        weights[constraint]++;
+        for (int item : scopes[constraint]) {
+            for (int other : scopes[constraint]) {
+                if (other != item && !assignment.isAssigned(other)) weightedDegrees[item]++;
+            }
+            update(item);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package edu.wpi.cs.csp;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the search allocates nothing per node once it is warmed up. Each case searches a CSP that keeps the
+ * search busy until its node limit, and two searches that only differ in their node limit do the same setup, so the
+ * difference in what they allocate is what the extra nodes allocated.
+ * <p>
+ * A pigeonhole CSP of 40 items and 39 bags is searched with the capacity reasoning and symmetry breaking off, so that
+ * the domain trail grows well past the 128 heights that {@link Integer#valueOf(int)} caches. With the default settings
+ * the capacity reasoning proves that CSP infeasible at the root, so those are tested on pigeonholes made of inequality
+ * constraints instead, whose bags come in interchangeable pairs. Branch-and-bound and the enumeration of solutions are
+ * tested on bin packings with plenty of solutions. Backjumping and restarts are left out, since every nogood learned
+ * and every restart allocates by design.
+ *
+ * @author Daniel Beckwith
+ */
+public class SearchAllocationTest {
+
+    private static final int ITEMS = 40;
+    private static final long SHORT_NODES = 20000;
+    private static final long LONG_NODES = 120000;
+
+    @Test
+    public void forwardCheckingAllocatesNothingPerNode() {
+        assertNoAllocationPerNode(solve(pigeonhole(), propagation(ForwardCheckingPropagator::new)));
+    }
+
+    @Test
+    public void arcConsistencyAllocatesNothingPerNode() {
+        assertNoAllocationPerNode(solve(pigeonhole(), propagation(ArcConsistencyPropagator::new)));
+    }
+
+    @Test
+    public void defaultOptionsAllocateNothingPerNode() {
+        assertNoAllocationPerNode(solve(inequalityPigeonhole(), new SolverOptions()));
+    }
+
+    @Test
+    public void minimizingWasteAllocatesNothingPerNode() {
+        assertNoAllocationPerNode(optimize(packing(), Objective.WASTED_CAPACITY));
+    }
+
+    @Test
+    public void minimizingBagsAllocatesNothingPerNode() {
+        assertNoAllocationPerNode(optimize(packing(), Objective.BAGS_USED));
+    }
+
+    @Test
+    public void countingAllocatesNothingPerNode() {
+        CSP csp = packing();
+        CSPSolver solver = new CSPSolver();
+        assertNoAllocationPerNode(nodes -> solver.count(csp, limit(new SolverOptions(), nodes)));
+    }
+
+    /**
+     * Asserts that the given search allocates less than a byte per node in steady state.
+     *
+     * @param search The search to run, given its node limit.
+     */
+    private static void assertNoAllocationPerNode(LongConsumer search) {
+        com.sun.management.ThreadMXBean threads = threadBean();
+
+        // warm up the search so that the measured searches run compiled code
+        search.accept(LONG_NODES);
+
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        search.accept(SHORT_NODES);
+        long shortBytes = threads.getThreadAllocatedBytes(id) - before;
+        before = threads.getThreadAllocatedBytes(id);
+        search.accept(LONG_NODES);
+        long longBytes = threads.getThreadAllocatedBytes(id) - before;
+
+        double perNode = (double) (longBytes - shortBytes) / (LONG_NODES - SHORT_NODES);
+        assertTrue("allocated " + perNode + " bytes per node", perNode < 1);
+    }
+
+    /**
+     * Returns the search of the given CSP with the given settings, which must not find a solution before it is stopped
+     * by its node limit.
+     *
+     * @param csp     The {@link CSP} to search.
+     * @param options The {@link SolverOptions} to search with.
+     * @return the search, given its node limit
+     */
+    private static LongConsumer solve(CSP csp, SolverOptions options) {
+        CSPSolver solver = new CSPSolver();
+        return nodes -> assertEquals(CSPSolver.Outcome.STOPPED, solver.attempt(csp, limit(options, nodes)));
+    }
+
+    /**
+     * Returns the branch-and-bound search of the given CSP for the given objective, which must not prove its best
+     * solution optimal before it is stopped by its node limit.
+     *
+     * @param csp       The {@link CSP} to optimize.
+     * @param objective The {@link Objective} to minimize.
+     * @return the search, given its node limit
+     */
+    private static LongConsumer optimize(CSP csp, Objective objective) {
+        CSPSolver solver = new CSPSolver();
+        SolverOptions options = new SolverOptions();
+        options.setObjective(objective);
+        return nodes -> {
+            Optional<Solution> solution = solver.optimize(csp, limit(options, nodes));
+            assertTrue("the packing has a solution", solution.isPresent());
+            assertTrue("the search is stopped by its node limit", !solution.get().isOptimal());
+        };
+    }
+
+    /**
+     * Returns the settings with the given propagation and without the capacity reasoning and symmetry breaking.
+     *
+     * @param propagator The {@link Supplier&lt;{@link Propagator}&gt;} to search with.
+     * @return a {@link SolverOptions}
+     */
+    private static SolverOptions propagation(Supplier<Propagator> propagator) {
+        SolverOptions options = new SolverOptions();
+        options.setPropagator(propagator);
+        options.setCapacityPropagation(false);
+        options.setSymmetryBreaking(false);
+        return options;
+    }
+
+    /**
+     * Returns a copy of the given settings with the given node limit.
+     *
+     * @param options The {@link SolverOptions} to copy.
+     * @param nodes   The node limit.
+     * @return a {@link SolverOptions}
+     */
+    private static SolverOptions limit(SolverOptions options, long nodes) {
+        SolverOptions limited = new SolverOptions(options);
+        limited.setNodeLimit(nodes);
+        return limited;
+    }
+
+    /**
+     * Returns a CSP of unit items that each need a bag of their own, with one bag fewer than there are items.
+     *
+     * @return a {@link CSP}
+     */
+    private static CSP pigeonhole() {
+        CSP csp = new CSP();
+        for (int i = 0; i < ITEMS; i++) {
+            csp.getItems().add(new Item("i" + i, 1));
+        }
+        for (int b = 0; b < ITEMS - 1; b++) {
+            Bag bag = new Bag("b" + b, 1, 1);
+            csp.getBags().add(bag);
+            csp.getConstraints().add(new MaxCapacityConstraint(bag));
+            csp.getConstraints().add(new MaxSizeConstraint(bag));
+        }
+        return csp;
+    }
+
+    /**
+     * Returns a CSP of unit items that must all go in different bags, with one bag fewer than there are items. The
+     * bags have room for every item, and come in pairs of interchangeable bags.
+     *
+     * @return a {@link CSP}
+     */
+    private static CSP inequalityPigeonhole() {
+        CSP csp = new CSP();
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = new Item("i" + i, 1);
+            for (Item other : csp.getItems()) {
+                csp.getConstraints().add(new InequalityConstraint(other, item));
+            }
+            csp.getItems().add(item);
+        }
+        for (int b = 0; b < ITEMS - 1; b++) {
+            Bag bag = new Bag("b" + b, ITEMS, ITEMS + b / 2);
+            csp.getBags().add(bag);
+            csp.getConstraints().add(new MaxCapacityConstraint(bag));
+            csp.getConstraints().add(new MaxSizeConstraint(bag));
+        }
+        return csp;
+    }
+
+    /**
+     * Returns a CSP of items of random weights to pack into interchangeable bags, with plenty of solutions but no
+     * quick proof of the cheapest one.
+     *
+     * @return a {@link CSP}
+     */
+    private static CSP packing() {
+        Random random = new Random(1);
+        CSP csp = new CSP();
+        for (int i = 0; i < 30; i++) {
+            csp.getItems().add(new Item("i" + i, 8 + random.nextInt(5)));
+        }
+        for (int b = 0; b < 12; b++) {
+            Bag bag = new Bag("b" + b, 6, 30);
+            csp.getBags().add(bag);
+            csp.getConstraints().add(new MaxCapacityConstraint(bag));
+            csp.getConstraints().add(new MaxSizeConstraint(bag));
+        }
+        return csp;
+    }
+
+    /**
+     * Returns the thread bean that measures the bytes allocated by a thread, skipping the test if there is none.
+     *
+     * @return a {@link com.sun.management.ThreadMXBean}
+     */
+    private static com.sun.management.ThreadMXBean threadBean() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}